@@ -0,0 +1,101 @@
+package me.mrepiko.sopra.benchmarks;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import me.mrepiko.sopra.DatabaseCredentials;
+import me.mrepiko.sopra.SopraApi;
+import me.mrepiko.sopra.benchmarks.entity.BenchAccount;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Embedded MariaDB started once per benchmark JVM. Setting -Dsopra.bench.host points the benchmarks at a running MySQL instead.
+public final class BenchmarkDatabase {
+
+    public static final String DATA_SOURCE_ID = "bench";
+    private static final String DATABASE_NAME = "sopra_bench";
+
+    private static DatabaseCredentials credentials;
+
+    private BenchmarkDatabase() { }
+
+    @NotNull
+    public static synchronized DatabaseCredentials getCredentials() {
+        if (credentials == null) {
+            credentials = start();
+        }
+        return credentials;
+    }
+
+    @NotNull
+    public static SopraApi createSopra() {
+        return SopraApi.Builder.create(BenchAccount.class)
+                .setCredentials(getCredentials())
+                .setDataSourceClassName("com.mysql.cj.jdbc.MysqlDataSource")
+                .setMetricsEnabled(false)
+                .build();
+    }
+
+    public static void execute(@NotNull String sql) {
+        DatabaseCredentials credentials = getCredentials();
+        try (Connection connection = DriverManager.getConnection(url(credentials.getHost(), credentials.getPort(), credentials.getDatabaseName()),
+                credentials.getUser(), credentials.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to execute query: " + sql, e);
+        }
+    }
+
+    @NotNull
+    private static DatabaseCredentials start() {
+        String host = System.getProperty("sopra.bench.host");
+        if (host != null) {
+            int port = Integer.getInteger("sopra.bench.port", 3306);
+            String user = System.getProperty("sopra.bench.user", "root");
+            String password = System.getProperty("sopra.bench.password", "");
+            createDatabase(host, port, user, password);
+            return new DatabaseCredentials(DATA_SOURCE_ID, host, port, DATABASE_NAME, user, password);
+        }
+        try {
+            DBConfigurationBuilder configuration = DBConfigurationBuilder.newBuilder().setPort(0);
+            configuration.addArg("--max_allowed_packet=64M");
+            if ("root".equals(System.getProperty("user.name"))) {
+                // mariadbd refuses to run as root unless told to, which is common in containers.
+                configuration.addArg("--user=root");
+            }
+            DB db = DB.newEmbeddedDB(configuration.build());
+            db.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    db.stop();
+                } catch (Exception ignored) {
+                    // The JVM is exiting anyway.
+                }
+            }));
+            int port = db.getConfiguration().getPort();
+            createDatabase("127.0.0.1", port, "root", "");
+            return new DatabaseCredentials(DATA_SOURCE_ID, "127.0.0.1", port, DATABASE_NAME, "root", "");
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to start embedded MariaDB", e);
+        }
+    }
+
+    private static void createDatabase(@NotNull String host, int port, @NotNull String user, @NotNull String password) {
+        try (Connection connection = DriverManager.getConnection(url(host, port, ""), user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create database " + DATABASE_NAME, e);
+        }
+    }
+
+    @NotNull
+    private static String url(@NotNull String host, int port, @NotNull String database) {
+        return "jdbc:mysql://" + host + ":" + port + "/" + database;
+    }
+
+}
@@ -0,0 +1,25 @@
+package me.mrepiko.sopra.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs JMH like its own main class, but writes JSON results to jmh-result.json unless a result format is given.
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() { }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(List.of("-rf", "json"));
+            if (!arguments.contains("-rff")) {
+                arguments.addAll(List.of("-rff", "jmh-result.json"));
+            }
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+
+}
@@ -0,0 +1,30 @@
+package me.mrepiko.sopra.benchmarks;
+
+import me.mrepiko.sopra.SopraApi;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Builder.build(): pool creation, entity discovery and setupTables against an existing, unchanged schema.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class BootstrapBenchmark {
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // The first build creates the table, so every measured build only compares schemas.
+        BenchmarkDatabase.createSopra().close();
+    }
+
+    @Benchmark
+    public SopraApi build() {
+        SopraApi sopra = BenchmarkDatabase.createSopra();
+        sopra.close();
+        return sopra;
+    }
+
+}
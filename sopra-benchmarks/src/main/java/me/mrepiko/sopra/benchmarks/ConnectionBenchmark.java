@@ -0,0 +1,38 @@
+package me.mrepiko.sopra.benchmarks;
+
+import me.mrepiko.sopra.SopraApi;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Checkout and return of a pooled connection. Run with -t to see contention once threads outnumber the pool.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ConnectionBenchmark {
+
+    private SopraApi sopra;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sopra = BenchmarkDatabase.createSopra();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sopra.close();
+    }
+
+    @Benchmark
+    public boolean checkout() throws SQLException {
+        try (Connection connection = sopra.getConnection(BenchmarkDatabase.DATA_SOURCE_ID)) {
+            return connection.getAutoCommit();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package me.mrepiko.sopra.benchmarks;
+
+import me.mrepiko.sopra.annotations.Column;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.benchmarks.entity.BenchAccount;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+// Column name and SQL type resolution for every field of an entity, as done once per entity on startup.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class MappingBenchmark {
+
+    private EntityMetadataRegistry registry;
+    private SopraTable table;
+    private Field[] fields;
+    private Column[] columns;
+
+    @Setup
+    public void setUp() {
+        registry = new EntityMetadataRegistry(null);
+        table = BenchAccount.class.getAnnotation(SopraTable.class);
+        fields = BenchAccount.class.getDeclaredFields();
+        columns = new Column[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns[i] = fields[i].getAnnotation(Column.class);
+        }
+    }
+
+    @Benchmark
+    public void getColumnName(Blackhole blackhole) {
+        for (int i = 0; i < fields.length; i++) {
+            blackhole.consume(registry.getColumnName(fields[i], table, columns[i]));
+        }
+    }
+
+    @Benchmark
+    public void getSqlType(Blackhole blackhole) {
+        for (int i = 0; i < fields.length; i++) {
+            blackhole.consume(registry.getSqlType(fields[i], columns[i]));
+        }
+    }
+
+    @Benchmark
+    public void toSnakeCase(Blackhole blackhole) {
+        for (Field field : fields) {
+            blackhole.consume(EntityMetadataRegistry.toSnakeCase(field.getName()));
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package me.mrepiko.sopra.benchmarks;
+
+import me.mrepiko.sopra.SopraApi;
+import me.mrepiko.sopra.benchmarks.entity.BenchAccount;
+import me.mrepiko.sopra.repository.Repository;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Per-row read and write throughput of the repository. Each benchmark runs in its own fork on a fresh table of ROWS rows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowBenchmark {
+
+    private static final int ROWS = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    private SopraApi sopra;
+    private Repository<BenchAccount> repository;
+    private List<BenchAccount> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sopra = BenchmarkDatabase.createSopra();
+        BenchmarkDatabase.execute("TRUNCATE TABLE bench_accounts");
+        repository = sopra.getRepository(BenchAccount.class);
+        List<BenchAccount> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(BenchAccount.create(i));
+        }
+        repository.insertAll(rows);
+    }
+
+    @Setup(Level.Invocation)
+    public void createBatch() {
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(BenchAccount.create(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sopra.close();
+    }
+
+    @Benchmark
+    public void insert() {
+        repository.insert(BenchAccount.create(ThreadLocalRandom.current().nextInt()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object insertAll() {
+        return repository.insertAll(batch);
+    }
+
+    @Benchmark
+    public BenchAccount findById() {
+        return repository.findById(ThreadLocalRandom.current().nextLong(1, ROWS + 1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void findAll(Blackhole blackhole) {
+        blackhole.consume(repository.findAll());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void stream(Blackhole blackhole) {
+        try (Stream<BenchAccount> stream = repository.streamAll()) {
+            stream.forEach(blackhole::consume);
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package me.mrepiko.sopra.benchmarks.entity;
+
+import me.mrepiko.sopra.annotations.*;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+@SopraTable(dataSourceId = "bench", name = "bench_accounts", snakeCase = true)
+public class BenchAccount {
+
+    @Id
+    @AutoIncrement
+    public long id;
+    @Column(length = 64)
+    public String username;
+    public String email;
+    public int loginCount;
+    public double balance;
+    public boolean active;
+    public UUID token;
+    public List<String> roles;
+    @Default("CURRENT_TIMESTAMP")
+    public Timestamp createdAt;
+
+    public static BenchAccount create(int i) {
+        BenchAccount account = new BenchAccount();
+        account.username = "user" + i;
+        account.email = "user" + i + "@example.com";
+        account.loginCount = i;
+        account.balance = i * 1.5;
+        account.active = (i % 2) == 0;
+        account.token = new UUID(i, i);
+        account.roles = List.of("member");
+        return account;
+    }
+
+}
@@ -0,0 +1,142 @@
+package me.mrepiko.sopra.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+@SupportedAnnotationTypes(SopraTableProcessor.SOPRA_TABLE)
+public class SopraTableProcessor extends AbstractProcessor {
+
+    public static final String INDEX_LOCATION = "META-INF/sopra/entities.idx";
+
+    static final String SOPRA_TABLE = "me.mrepiko.sopra.annotations.SopraTable";
+    private static final String COLUMN = "me.mrepiko.sopra.annotations.Column";
+    private static final String TRANSIENT = "me.mrepiko.sopra.annotations.Transient";
+
+    private final Map<String, String> entries = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    continue;
+                }
+                TypeElement type = (TypeElement) element;
+                entries.put(processingEnv.getElementUtils().getBinaryName(type).toString(), describe(type));
+            }
+        }
+        return false;
+    }
+
+    private String describe(TypeElement type) {
+        boolean snakeCase = Boolean.TRUE.equals(getValue(findAnnotation(type, SOPRA_TABLE), "snakeCase"));
+        StringBuilder builder = new StringBuilder();
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed.getKind() != ElementKind.FIELD || enclosed.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            if (findAnnotation(enclosed, TRANSIENT) != null) {
+                continue;
+            }
+            String fieldName = enclosed.getSimpleName().toString();
+            AnnotationMirror column = findAnnotation(enclosed, COLUMN);
+            String columnName = (column != null) ? (String) getValue(column, "name") : "";
+            if (columnName == null || columnName.isEmpty()) {
+                columnName = snakeCase ? toSnakeCase(fieldName) : fieldName;
+            }
+            builder.append('\t').append(fieldName).append('=').append(columnName);
+        }
+        return builder.toString();
+    }
+
+    private void writeIndex() {
+        readPreviousIndex();
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8))) {
+                writer.write("# Generated by Sopra annotation processor. Do not edit.\n");
+                for (Map.Entry<String, String> entry : entries.entrySet()) {
+                    writer.write(entry.getKey());
+                    writer.write(entry.getValue());
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write Sopra entity index: " + e.getMessage());
+        }
+    }
+
+    // Incremental builds only hand us the recompiled classes, so entries for untouched entities are carried over.
+    private void readPreviousIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank() || line.startsWith("#")) {
+                        continue;
+                    }
+                    int separator = line.indexOf('\t');
+                    String className = (separator == -1) ? line : line.substring(0, separator);
+                    if (entries.containsKey(className)) {
+                        continue;
+                    }
+                    TypeElement type = processingEnv.getElementUtils().getTypeElement(className.replace('$', '.'));
+                    if (type != null && findAnnotation(type, SOPRA_TABLE) != null) {
+                        entries.put(className, (separator == -1) ? "" : line.substring(separator));
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException ignored) {
+            // No previous index.
+        }
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static Object getValue(AnnotationMirror mirror, String name) {
+        if (mirror == null) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String toSnakeCase(String name) {
+        return name.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    }
+
+}
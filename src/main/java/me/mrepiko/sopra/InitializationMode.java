@@ -0,0 +1,10 @@
+package me.mrepiko.sopra;
+
+public enum InitializationMode {
+    // Pools and tables are set up one data source after another before build() returns.
+    EAGER,
+    // build() returns at once while every data source is set up in the background at the same time.
+    PARALLEL,
+    // A data source is set up on its first connection request or when its readiness is requested.
+    LAZY
+}
@@ -10,6 +10,21 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import me.mrepiko.sopra.async.AsyncRepository;
+import me.mrepiko.sopra.async.ConcurrencyLimiter;
+import me.mrepiko.sopra.async.ConnectionFunction;
+import me.mrepiko.sopra.async.OverloadPolicy;
+import me.mrepiko.sopra.async.OverloadSettings;
+import me.mrepiko.sopra.codec.CodecRegistry;
+import me.mrepiko.sopra.codec.TypeCodec;
+import me.mrepiko.sopra.codec.TypeCodecFactory;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metrics.SopraMetrics;
+import me.mrepiko.sopra.repository.Repository;
+import me.mrepiko.sopra.routing.DataSourceGroup;
+import me.mrepiko.sopra.routing.ReadRouting;
+import me.mrepiko.sopra.routing.ShardRing;
+import me.mrepiko.sopra.schema.MigrationMode;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -18,18 +33,70 @@ import org.slf4j.LoggerFactory;
 import javax.swing.*;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
-public interface SopraApi {
+public interface SopraApi extends AutoCloseable {
 
     @NotNull
     Connection getConnection(@NotNull String dataSourceId) throws SQLException;
 
+    // Connection to a replica of the data source when it has any, otherwise to the data source itself.
+    @NotNull
+    Connection getReadConnection(@NotNull String dataSourceId) throws SQLException;
+
+    // Connection to the default data source, which is the first one configured unless set explicitly.
     @NotNull
     Connection getConnection() throws SQLException;
 
+    @NotNull
+    SopraMetrics getMetrics();
+
+    // Completes once every data source has its pool filled to its minimum idle size and its tables set up.
+    // In LAZY mode this also starts setting up the data sources that were not used yet.
+    @NotNull
+    CompletableFuture<Void> getReadiness();
+
+    @NotNull
+    CompletableFuture<Void> getReadiness(@NotNull String dataSourceId);
+
+    // Ring of the shard group with this ID, or null when the ID does not name a shard group.
+    @Nullable
+    ShardRing getShardRing(@NotNull String dataSourceId);
+
+    @NotNull
+    <T> EntityMetadata<T> getMetadata(@NotNull Class<T> clazz);
+
+    @NotNull
+    <T> Repository<T> getRepository(@NotNull Class<T> clazz);
+
+    // Repository whose operations run on virtual threads, at most as many per data source as its pool has connections.
+    @NotNull
+    <T> AsyncRepository<T> getAsyncRepository(@NotNull Class<T> clazz);
+
+    // Runs the function on a virtual thread with a connection that is closed afterwards, within the data source's limit.
+    @NotNull
+    <R> CompletableFuture<R> withConnectionAsync(@NotNull String dataSourceId, @NotNull ConnectionFunction<R> function);
+
+    // Limiter of async operations on a data source or shard group.
+    @NotNull
+    ConcurrencyLimiter getLimiter(@NotNull String dataSourceId);
+
+    // Limiter of async reads, sized to the replicas of the data source. Same as getLimiter while reads go to the primary.
+    @NotNull
+    ConcurrencyLimiter getReadLimiter(@NotNull String dataSourceId);
+
+    @NotNull
+    default <T> Stream<T> stream(@NotNull Class<T> clazz, @NotNull String query, @NotNull Object... parameters) {
+        return getRepository(clazz).stream(query, parameters);
+    }
+
+    // Closes the connection pools of every data source.
+    @Override
+    void close();
+
     @Setter
     class Builder {
 
@@ -37,8 +104,24 @@ public interface SopraApi {
         private final ObjectMapper MAPPER = new ObjectMapper();
 
         private Class<?> baseClass;
-        private Map<String, Config> config = new HashMap<>();
+        private Map<String, Config> config = new LinkedHashMap<>();
         private Map<String, Object> defaultProperties;
+        private MigrationMode migrationMode = MigrationMode.DRY_RUN;
+        private boolean allowCopyMigrations;
+        private Map<String, List<String>> replicas = new HashMap<>();
+        private ReadRouting readRouting = ReadRouting.ROUND_ROBIN;
+        private Duration readYourWrites = Duration.ZERO;
+        private String defaultDataSourceId;
+        private Map<String, List<String>> shardGroups = new LinkedHashMap<>();
+        private boolean metricsEnabled = true;
+        private InitializationMode initializationMode = InitializationMode.EAGER;
+        private Integer minimumIdle;
+        private boolean bulkLoadEnabled;
+        private Duration slowQueryThreshold;
+        private OverloadPolicy overloadPolicy = OverloadPolicy.QUEUE;
+        private int maxQueuedOperations = OverloadSettings.DEFAULT.maxQueued();
+        private Duration queueTimeout;
+        private final CodecRegistry codecs = new CodecRegistry();
 
         private Builder(@NotNull Class<?> baseClass) {
             this.baseClass = baseClass;
@@ -147,6 +230,144 @@ public interface SopraApi {
             return this;
         }
 
+        @NotNull
+        public Builder setMigrationMode(@NotNull MigrationMode migrationMode) {
+            this.migrationMode = migrationMode;
+            return this;
+        }
+
+        // Lets APPLY run changes that rebuild the table, such as narrowing a column type, and lets the server fall back
+        // to a locking ALTER when the online algorithms are refused. Without it such tables are only reported.
+        @NotNull
+        public Builder setAllowCopyMigrations(boolean allowCopyMigrations) {
+            this.allowCopyMigrations = allowCopyMigrations;
+            return this;
+        }
+
+        // Replicas are configured like any other data source and then attached to their primary by ID.
+        @NotNull
+        public Builder addReplica(@NotNull String primaryId, @NotNull String replicaId) {
+            if (primaryId.equals(replicaId)) {
+                throw new IllegalArgumentException("Data source '" + primaryId + "' cannot be a replica of itself");
+            }
+            this.replicas.computeIfAbsent(primaryId, x -> new ArrayList<>()).add(replicaId);
+            return this;
+        }
+
+        @NotNull
+        public Builder setReadRouting(@NotNull ReadRouting readRouting) {
+            this.readRouting = readRouting;
+            return this;
+        }
+
+        // After a write to a data source, all of its reads go to the primary for this long. Zero disables it.
+        @NotNull
+        public Builder setReadYourWrites(@NotNull Duration readYourWrites) {
+            if (readYourWrites.isNegative()) {
+                throw new IllegalArgumentException("Read-your-writes window cannot be negative");
+            }
+            this.readYourWrites = readYourWrites;
+            return this;
+        }
+
+        // Entities whose dataSourceId is the group ID are spread across the given data sources by their @ShardKey.
+        @NotNull
+        public Builder addShardGroup(@NotNull String groupId, @NotNull List<String> shardIds) {
+            if (shardIds.isEmpty()) {
+                throw new IllegalArgumentException("Shard group '" + groupId + "' needs at least one shard");
+            }
+            this.shardGroups.put(groupId, List.copyOf(shardIds));
+            return this;
+        }
+
+        @NotNull
+        public Builder setInitializationMode(@NotNull InitializationMode initializationMode) {
+            this.initializationMode = initializationMode;
+            return this;
+        }
+
+        // Connections every pool opens in the background and keeps open, so the first requests do not pay for connecting.
+        @NotNull
+        public Builder setMinimumIdle(int minimumIdle) {
+            if (minimumIdle < 0) {
+                throw new IllegalArgumentException("Minimum idle size cannot be negative");
+            }
+            this.minimumIdle = minimumIdle;
+            return this;
+        }
+
+        // Lets Repository#load stream rows with LOAD DATA LOCAL INFILE. The driver then also answers a server asking for
+        // any local file, so only enable it for servers you trust.
+        @NotNull
+        public Builder setBulkLoadEnabled(boolean bulkLoadEnabled) {
+            this.bulkLoadEnabled = bulkLoadEnabled;
+            return this;
+        }
+
+        @NotNull
+        public Builder setMetricsEnabled(boolean metricsEnabled) {
+            this.metricsEnabled = metricsEnabled;
+            return this;
+        }
+
+        // Operations taking at least this long are logged with their SQL, whether metrics are enabled or not.
+        @NotNull
+        public Builder setSlowQueryThreshold(@NotNull Duration slowQueryThreshold) {
+            this.slowQueryThreshold = slowQueryThreshold;
+            return this;
+        }
+
+        // What async operations do once a data source runs as many of them as its pool has connections.
+        @NotNull
+        public Builder setOverloadPolicy(@NotNull OverloadPolicy overloadPolicy) {
+            this.overloadPolicy = overloadPolicy;
+            return this;
+        }
+
+        // Async operations allowed to wait per data source under the QUEUE policy; the next ones are rejected at once.
+        @NotNull
+        public Builder setMaxQueuedOperations(int maxQueuedOperations) {
+            if (maxQueuedOperations < 0) {
+                throw new IllegalArgumentException("Maximum queued operations cannot be negative");
+            }
+            this.maxQueuedOperations = maxQueuedOperations;
+            return this;
+        }
+
+        // How long a queued async operation waits for a free slot. Defaults to the pool's connection timeout.
+        @NotNull
+        public Builder setQueueTimeout(@NotNull Duration queueTimeout) {
+            this.queueTimeout = queueTimeout;
+            return this;
+        }
+
+        // Replaces how fields of exactly this type are stored, including the built-in mapping.
+        @NotNull
+        public <V> Builder registerCodec(@NotNull Class<V> type, @NotNull TypeCodec<V> codec) {
+            this.codecs.register(type, codec);
+            return this;
+        }
+
+        @NotNull
+        public Builder registerCodecFactory(@NotNull TypeCodecFactory factory) {
+            this.codecs.register(factory);
+            return this;
+        }
+
+        // Stores UUIDs as BINARY(16), Instants as BIGINT milliseconds and enums as native ENUM columns. Existing UUID and
+        // Instant columns have to be converted by hand first.
+        @NotNull
+        public Builder useCompactTypes() {
+            this.codecs.useCompactTypes();
+            return this;
+        }
+
+        @NotNull
+        public Builder setDefaultDataSourceId(@NotNull String defaultDataSourceId) {
+            this.defaultDataSourceId = defaultDataSourceId;
+            return this;
+        }
+
         @NotNull
         public static Builder create(@NotNull Class<?> baseClass) {
             return new Builder(baseClass);
@@ -154,15 +375,92 @@ public interface SopraApi {
 
         @NotNull
         public SopraApi build() {
-            Map<String, HikariDataSource> dataSources = new HashMap<>();
+            Set<String> replicaIds = validateReplicas();
+            validateShardGroups(replicaIds);
+            Map<String, HikariDataSource> dataSources = new LinkedHashMap<>();
             for (Map.Entry<String, Config> entry : config.entrySet()) {
                 String id = entry.getKey();
                 Config config = entry.getValue();
                 config.setDefaultProperties(defaultProperties);
-                dataSources.put(id, new HikariDataSource(config.getHikariConfig()));
-                LOGGER.info("Connection established for data source with ID: {}", id);
+                if (minimumIdle != null) {
+                    config.getHikariConfig().setMinimumIdle(minimumIdle);
+                }
+                if (bulkLoadEnabled) {
+                    config.getHikariConfig().addDataSourceProperty("allowLoadLocalInfile", true);
+                }
+                if (initializationMode == InitializationMode.EAGER) {
+                    dataSources.put(id, new HikariDataSource(config.getHikariConfig()));
+                    LOGGER.info("Connection established for data source with ID: {}", id);
+                } else {
+                    // Without a config in the constructor, Hikari only starts the pool on the first getConnection.
+                    HikariDataSource dataSource = new HikariDataSource();
+                    config.getHikariConfig().copyStateTo(dataSource);
+                    dataSources.put(id, dataSource);
+                }
+            }
+
+            Map<String, DataSourceGroup> groups = new LinkedHashMap<>();
+            for (Map.Entry<String, HikariDataSource> entry : dataSources.entrySet()) {
+                if (replicaIds.contains(entry.getKey())) {
+                    continue;
+                }
+                Map<String, HikariDataSource> groupReplicas = new LinkedHashMap<>();
+                for (String replicaId : replicas.getOrDefault(entry.getKey(), List.of())) {
+                    groupReplicas.put(replicaId, dataSources.get(replicaId));
+                }
+                groups.put(entry.getKey(), new DataSourceGroup(entry.getKey(), entry.getValue(), groupReplicas, readRouting, readYourWrites));
+            }
+            String defaultId = (defaultDataSourceId != null) ? defaultDataSourceId : (groups.isEmpty() ? null : groups.keySet().iterator().next());
+            Map<String, ShardRing> shardRings = new HashMap<>();
+            for (Map.Entry<String, List<String>> entry : shardGroups.entrySet()) {
+                shardRings.put(entry.getKey(), new ShardRing(entry.getKey(), entry.getValue()));
+            }
+            SopraMetrics metrics = new SopraMetrics(metricsEnabled, slowQueryThreshold, dataSources);
+            return new SopraImpl(dataSources, groups, shardRings, defaultId, baseClass, migrationMode, allowCopyMigrations, metrics, initializationMode, codecs,
+                    new OverloadSettings(overloadPolicy, maxQueuedOperations, queueTimeout));
+        }
+
+        private void validateShardGroups(@NotNull Set<String> replicaIds) {
+            for (Map.Entry<String, List<String>> entry : shardGroups.entrySet()) {
+                if (config.containsKey(entry.getKey())) {
+                    throw new IllegalArgumentException("Shard group ID '" + entry.getKey() + "' is already used by a data source");
+                }
+                for (String shardId : entry.getValue()) {
+                    if (!config.containsKey(shardId)) {
+                        throw new IllegalArgumentException("Shard data source with ID '" + shardId + "' is not configured");
+                    }
+                    if (replicaIds.contains(shardId)) {
+                        throw new IllegalArgumentException("Replica data source with ID '" + shardId + "' cannot be a shard");
+                    }
+                }
+            }
+        }
+
+        @NotNull
+        private Set<String> validateReplicas() {
+            Set<String> replicaIds = new HashSet<>();
+            for (Map.Entry<String, List<String>> entry : replicas.entrySet()) {
+                if (!config.containsKey(entry.getKey())) {
+                    throw new IllegalArgumentException("Primary data source with ID '" + entry.getKey() + "' is not configured");
+                }
+                for (String replicaId : entry.getValue()) {
+                    if (!config.containsKey(replicaId)) {
+                        throw new IllegalArgumentException("Replica data source with ID '" + replicaId + "' is not configured");
+                    }
+                    if (!replicaIds.add(replicaId)) {
+                        throw new IllegalArgumentException("Data source with ID '" + replicaId + "' is a replica of more than one primary");
+                    }
+                }
+            }
+            for (String primaryId : replicas.keySet()) {
+                if (replicaIds.contains(primaryId)) {
+                    throw new IllegalArgumentException("Data source with ID '" + primaryId + "' cannot be both a primary and a replica");
+                }
+            }
+            if (defaultDataSourceId != null && (!config.containsKey(defaultDataSourceId) || replicaIds.contains(defaultDataSourceId))) {
+                throw new IllegalArgumentException("Default data source with ID '" + defaultDataSourceId + "' is not a configured primary");
             }
-            return new SopraImpl(dataSources, baseClass);
+            return replicaIds;
         }
 
         @AllArgsConstructor
@@ -244,6 +542,10 @@ public interface SopraApi {
                 this.hikariConfig.addDataSourceProperty("user", user);
                 this.hikariConfig.addDataSourceProperty("password", password);
                 this.hikariConfig.addDataSourceProperty("port", port);
+                this.hikariConfig.addDataSourceProperty("cachePrepStmts", true);
+                this.hikariConfig.addDataSourceProperty("prepStmtCacheSize", 250);
+                this.hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", 2048);
+                this.hikariConfig.addDataSourceProperty("rewriteBatchedStatements", true);
             }
 
             private void setDefaultProperties(@Nullable Map<String, Object> defaultProperties) {
@@ -1,214 +1,425 @@
 package me.mrepiko.sopra;
 
 import com.zaxxer.hikari.HikariDataSource;
-import me.mrepiko.sopra.annotations.*;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.annotations.WriteBehind;
+import me.mrepiko.sopra.async.AsyncRepository;
+import me.mrepiko.sopra.async.ConcurrencyLimiter;
+import me.mrepiko.sopra.async.ConnectionFunction;
+import me.mrepiko.sopra.async.OverloadSettings;
+import me.mrepiko.sopra.async.SopraAsyncRepository;
+import me.mrepiko.sopra.codec.CodecRegistry;
+import me.mrepiko.sopra.metadata.EntityIndex;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import me.mrepiko.sopra.metrics.SopraMetrics;
+import me.mrepiko.sopra.repository.Repository;
+import me.mrepiko.sopra.repository.SopraRepository;
+import me.mrepiko.sopra.routing.DataSourceGroup;
+import me.mrepiko.sopra.routing.ShardRing;
+import me.mrepiko.sopra.schema.MigrationMode;
+import me.mrepiko.sopra.schema.SchemaBootstrap;
+import me.mrepiko.sopra.schema.TableSchema;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Field;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class SopraImpl implements SopraApi {
 
+    private static final long WARM_UP_POLL_MILLIS = 10;
+
     private final Logger LOGGER = LoggerFactory.getLogger(SopraImpl.class);
     private final Map<String, HikariDataSource> dataSources;
-    private final Reflections reflections;
-
-    private final Map<Class<?>, String> SQL_TYPES = Map.ofEntries(
-            Map.entry(int.class, "INT"),
-            Map.entry(Integer.class, "INT"),
-            Map.entry(long.class, "BIGINT"),
-            Map.entry(Long.class, "BIGINT"),
-            Map.entry(short.class, "SMALLINT"),
-            Map.entry(Short.class, "SMALLINT"),
-            Map.entry(byte.class, "TINYINT"),
-            Map.entry(Byte.class, "TINYINT"),
-            Map.entry(double.class, "DOUBLE"),
-            Map.entry(Double.class, "DOUBLE"),
-            Map.entry(float.class, "FLOAT"),
-            Map.entry(Float.class, "FLOAT"),
-            Map.entry(boolean.class, "BOOLEAN"),
-            Map.entry(Boolean.class, "BOOLEAN"),
-            Map.entry(Timestamp.class, "TIMESTAMP"),
-            Map.entry(LocalDateTime.class, "DATETIME"),
-            Map.entry(LocalDate.class, "DATE"),
-            Map.entry(LocalTime.class, "TIME"),
-            Map.entry(UUID.class, "CHAR(36)"),
-            Map.entry(byte[].class, "BLOB")
-    );
-
-    protected SopraImpl(@NotNull Map<String, HikariDataSource> dataSources, @NotNull Class<?> baseClass) {
+    private final Map<String, DataSourceGroup> groups;
+    private final Map<String, ShardRing> shardRings;
+    @Nullable
+    private final String defaultDataSourceId;
+    private final Set<Class<?>> entityClasses;
+    @Nullable
+    private final EntityIndex entityIndex;
+    private final EntityMetadataRegistry metadataRegistry;
+    private final Map<Class<?>, Repository<?>> repositories = new ConcurrentHashMap<>();
+    private final MigrationMode migrationMode;
+    private final boolean allowCopyMigrations;
+    private final SopraMetrics metrics;
+    private final InitializationMode initializationMode;
+    private final Map<String, List<TableSchema>> tables;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, CompletableFuture<Void>> initializations = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> readiness = new ConcurrentHashMap<>();
+    private final Thread shutdownHook = Thread.ofPlatform().name("sopra-shutdown").unstarted(this::flushRepositories);
+    private final AtomicBoolean shutdownHookAdded = new AtomicBoolean();
+    private final OverloadSettings overloadSettings;
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrencyLimiter> readLimiters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, AsyncRepository<?>> asyncRepositories = new ConcurrentHashMap<>();
+
+    protected SopraImpl(@NotNull Map<String, HikariDataSource> dataSources, @NotNull Map<String, DataSourceGroup> groups,
+                        @NotNull Map<String, ShardRing> shardRings, @Nullable String defaultDataSourceId,
+                        @NotNull Class<?> baseClass, @NotNull MigrationMode migrationMode, boolean allowCopyMigrations,
+                        @NotNull SopraMetrics metrics, @NotNull InitializationMode initializationMode, @NotNull CodecRegistry codecs,
+                        @NotNull OverloadSettings overloadSettings) {
         this.dataSources = new HashMap<>(dataSources);
-        this.reflections = new Reflections(baseClass.getPackageName());
-        setupTables();
+        this.groups = new HashMap<>(groups);
+        this.shardRings = new HashMap<>(shardRings);
+        this.defaultDataSourceId = defaultDataSourceId;
+        this.entityIndex = EntityIndex.load(baseClass.getClassLoader(), baseClass.getPackageName());
+        this.entityClasses = findEntityClasses(baseClass);
+        this.metadataRegistry = new EntityMetadataRegistry(entityIndex, codecs);
+        this.migrationMode = migrationMode;
+        this.allowCopyMigrations = allowCopyMigrations;
+        this.metrics = metrics;
+        this.initializationMode = initializationMode;
+        this.overloadSettings = overloadSettings;
+        this.tables = collectTables();
+        if (initializationMode == InitializationMode.EAGER) {
+            setupTables();
+        } else if (initializationMode == InitializationMode.PARALLEL) {
+            getReadiness();
+        }
     }
 
     @Override
     public @NotNull Connection getConnection(@NotNull String dataSourceId) throws SQLException {
-        if (dataSources.containsKey(dataSourceId)) {
-            return dataSources.get(dataSourceId).getConnection();
-        }
-        throw new IllegalArgumentException("Data source with ID '" + dataSourceId + "' does not exist.");
+        return acquire(dataSourceId, false);
+    }
+
+    @Override
+    public @NotNull Connection getReadConnection(@NotNull String dataSourceId) throws SQLException {
+        return acquire(dataSourceId, true);
     }
 
     @Override
     public @NotNull Connection getConnection() throws SQLException {
-        for (Map.Entry<String, HikariDataSource> entry : dataSources.entrySet()) {
-            return entry.getValue().getConnection();
+        if (defaultDataSourceId == null) {
+            throw new IllegalStateException("No data sources available");
         }
-        throw new IllegalStateException("No data sources available");
+        return getConnection(defaultDataSourceId);
     }
 
-    private void setupTables() {
-        Set<Class<?>> classes = reflections.getTypesAnnotatedWith(SopraTable.class);
-        Set<Class<?>> handledClasses = new HashSet<>();
+    @Override
+    public @NotNull SopraMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> getReadiness() {
+        return CompletableFuture.allOf(dataSources.keySet().stream().map(this::getDataSourceReadiness).toArray(CompletableFuture[]::new));
+    }
 
-        for (Map.Entry<String, HikariDataSource> entry : dataSources.entrySet()) {
-            Set<Class<?>> dataSourceClasses = classes.stream()
-                    .filter(clazz -> {
-                        SopraTable annotation = clazz.getAnnotation(SopraTable.class);
-                        if (annotation == null) {
-                            return false;
-                        }
-                        return annotation.dataSourceId().equalsIgnoreCase(entry.getKey());
-                    })
-                    .collect(Collectors.toSet());
-            if (dataSourceClasses.isEmpty()) {
-                continue;
-            }
-            setupTable(entry.getValue(), dataSourceClasses);
-            handledClasses.addAll(dataSourceClasses);
+    @Override
+    public @NotNull CompletableFuture<Void> getReadiness(@NotNull String dataSourceId) {
+        List<String> ids = new ArrayList<>();
+        ShardRing shardRing = shardRings.get(dataSourceId);
+        DataSourceGroup group = groups.get(dataSourceId);
+        if (shardRing != null) {
+            ids.addAll(shardRing.getShardIds());
+        } else if (dataSources.containsKey(dataSourceId)) {
+            ids.add(dataSourceId);
+            if (group != null) {
+                ids.addAll(group.getReplicaIds());
+            }
+        } else {
+            throw new IllegalArgumentException("Data source with ID '" + dataSourceId + "' does not exist.");
         }
-        warnOfUnhandledClasses(classes, handledClasses);
+        return CompletableFuture.allOf(ids.stream().map(this::getDataSourceReadiness).toArray(CompletableFuture[]::new));
     }
 
-    private void warnOfUnhandledClasses(@NotNull Set<Class<?>> allClasses, @NotNull Set<Class<?>> handledClasses) {
-        Set<Class<?>> unhandledClasses = allClasses.stream()
-                .filter(clazz -> !handledClasses.contains(clazz))
-                .collect(Collectors.toSet());
+    @Override
+    public @Nullable ShardRing getShardRing(@NotNull String dataSourceId) {
+        return shardRings.get(dataSourceId);
+    }
 
-        if (!unhandledClasses.isEmpty()) {
-            String classNames = unhandledClasses.stream()
-                    .map(Class::getName)
-                    .collect(Collectors.joining(", "));
-            LOGGER.warn("The following classes were not handled by any data source: {}", classNames);
-        }
+    @Override
+    public @NotNull <T> EntityMetadata<T> getMetadata(@NotNull Class<T> clazz) {
+        return metadataRegistry.get(clazz);
     }
 
-    private void setupTable(@NotNull HikariDataSource source, @NotNull Set<Class<?>> classes) {
-        for (Class<?> clazz : classes) {
-            SopraTable annotation = clazz.getAnnotation(SopraTable.class);
-            if (annotation == null) {
-                continue;
+    @Override
+    @SuppressWarnings("unchecked")
+    public @NotNull <T> Repository<T> getRepository(@NotNull Class<T> clazz) {
+        return (Repository<T>) repositories.computeIfAbsent(clazz, x -> {
+            // Buffered writes must reach the database even when the JVM exits without closing Sopra.
+            if (clazz.isAnnotationPresent(WriteBehind.class) && shutdownHookAdded.compareAndSet(false, true)) {
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
             }
-            String tableName = annotation.name();
-            if (tableName == null || tableName.isEmpty()) {
-                tableName = clazz.getSimpleName().toLowerCase();
+            return new SopraRepository<>(this, metadataRegistry.get(clazz));
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public @NotNull <T> AsyncRepository<T> getAsyncRepository(@NotNull Class<T> clazz) {
+        return (AsyncRepository<T>) asyncRepositories.computeIfAbsent(clazz, x ->
+                new SopraAsyncRepository<>((SopraRepository<T>) getRepository(clazz), this, metadataRegistry.get(clazz).getDataSourceId(), executor));
+    }
+
+    @Override
+    public @NotNull <R> CompletableFuture<R> withConnectionAsync(@NotNull String dataSourceId, @NotNull ConnectionFunction<R> function) {
+        return getLimiter(dataSourceId).submit(() -> {
+            try (Connection connection = getConnection(dataSourceId)) {
+                return function.apply(connection);
             }
+        }, executor);
+    }
 
-            StringBuilder query = new StringBuilder("CREATE TABLE IF NOT EXISTS " + tableName + " (\n");
-            for (Field field : clazz.getDeclaredFields()) {
-                if (field.isAnnotationPresent(Transient.class)) {
-                    continue;
-                }
+    @Override
+    public @NotNull ConcurrencyLimiter getLimiter(@NotNull String dataSourceId) {
+        ConcurrencyLimiter limiter = limiters.get(dataSourceId);
+        return (limiter != null) ? limiter : limiters.computeIfAbsent(dataSourceId, id -> createLimiter(id, getPools(id, false)));
+    }
 
-                Column column = field.getAnnotation(Column.class);
-                String columnName = getColumnName(field, annotation, column);
+    @Override
+    public @NotNull ConcurrencyLimiter getReadLimiter(@NotNull String dataSourceId) {
+        if (isReadingFromPrimaries(dataSourceId)) {
+            return getLimiter(dataSourceId);
+        }
+        ConcurrencyLimiter limiter = readLimiters.get(dataSourceId);
+        return (limiter != null) ? limiter : readLimiters.computeIfAbsent(dataSourceId, id -> createLimiter(id, getPools(id, true)));
+    }
 
-                Default defaultAnnotation = field.getAnnotation(Default.class);
-                OnUpdate onUpdate = field.getAnnotation(OnUpdate.class);
-                String sqlType = getSqlType(field.getType(), column);
+    // True when reads of the data source or one of the shards of the group are served by their primary right now.
+    private boolean isReadingFromPrimaries(@NotNull String dataSourceId) {
+        ShardRing shardRing = shardRings.get(dataSourceId);
+        for (String id : (shardRing != null) ? shardRing.getShardIds() : List.of(dataSourceId)) {
+            DataSourceGroup group = groups.get(id);
+            if (group == null || group.getReplicas().isEmpty() || group.isSticky()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                query.append("  ").append(columnName).append(" ").append(sqlType);
-                if (field.isAnnotationPresent(Id.class)) {
-                    query.append(" PRIMARY KEY");
-                    if (field.isAnnotationPresent(AutoIncrement.class)) {
-                        query.append(" AUTO_INCREMENT");
-                    }
-                }
+    // Pools serving the data source, or every shard of the group: its replicas for reads, otherwise its primary.
+    private @NotNull List<List<HikariDataSource>> getPools(@NotNull String dataSourceId, boolean read) {
+        ShardRing shardRing = shardRings.get(dataSourceId);
+        List<String> ids = (shardRing != null) ? shardRing.getShardIds() : List.of(dataSourceId);
+        List<List<HikariDataSource>> pools = new ArrayList<>();
+        for (String id : ids) {
+            DataSourceGroup group = groups.get(id);
+            HikariDataSource dataSource = dataSources.get(id);
+            if (dataSource == null) {
+                throw new IllegalArgumentException("Data source with ID '" + dataSourceId + "' does not exist.");
+            }
+            pools.add((read && group != null && !group.getReplicas().isEmpty()) ? group.getReplicas() : List.of(dataSource));
+        }
+        return pools;
+    }
 
-                if (column != null && !column.nullable()) {
-                    query.append(" NOT NULL");
-                } else {
-                    query.append(" NULL");
-                }
+    // Sized to the connections that serve the operations. Reads are spread across all replicas of a data source, so their
+    // pools add up. A shard group runs fan-outs on every shard, so its smallest shard decides.
+    private @NotNull ConcurrencyLimiter createLimiter(@NotNull String dataSourceId, @NotNull List<List<HikariDataSource>> pools) {
+        int maxConcurrency = pools.stream()
+                .mapToInt(shardPools -> shardPools.stream().mapToInt(HikariDataSource::getMaximumPoolSize).sum())
+                .min().orElseThrow();
+        long queueTimeoutNanos = (overloadSettings.queueTimeout() != null)
+                ? overloadSettings.queueTimeout().toNanos()
+                : TimeUnit.MILLISECONDS.toNanos(pools.getFirst().getFirst().getConnectionTimeout());
+        return new ConcurrencyLimiter(dataSourceId, maxConcurrency, overloadSettings.policy(), overloadSettings.maxQueued(), queueTimeoutNanos);
+    }
 
-                if (field.isAnnotationPresent(Unique.class)) {
-                    query.append(" UNIQUE");
-                }
-                if (defaultAnnotation != null) {
-                    query.append(" DEFAULT ").append(defaultAnnotation.value());
-                }
-                if (onUpdate != null) {
-                    query.append(" ON UPDATE ").append(onUpdate.value());
+    @Override
+    public void close() {
+        if (shutdownHookAdded.get()) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                // Already shutting down, the hook flushes as well.
+            }
+        }
+        try {
+            for (Repository<?> repository : repositories.values()) {
+                if (repository instanceof SopraRepository<?> sopraRepository) {
+                    sopraRepository.close();
                 }
+            }
+        } finally {
+            executor.shutdownNow();
+            for (HikariDataSource dataSource : dataSources.values()) {
+                dataSource.close();
+            }
+        }
+    }
 
-                query.append(",\n");
+    private void flushRepositories() {
+        repositories.forEach((clazz, repository) -> {
+            try {
+                repository.flush();
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to flush buffered writes of {}", clazz.getName(), e);
             }
+        });
+    }
 
-            PrimaryKey primaryKey = clazz.getAnnotation(PrimaryKey.class);
-            if (primaryKey != null) {
-                query.append("  PRIMARY KEY (").append(String.join(", ", primaryKey.columns())).append("),\n");
+    private @NotNull Connection acquire(@NotNull String dataSourceId, boolean read) throws SQLException {
+        DataSourceGroup group = groups.get(dataSourceId);
+        HikariDataSource dataSource = (group == null) ? dataSources.get(dataSourceId) : null;
+        if (group == null && dataSource == null) {
+            throw new IllegalArgumentException("Data source with ID '" + dataSourceId + "' does not exist.");
+        }
+        if (initializationMode != InitializationMode.EAGER) {
+            await(initialize(dataSourceId));
+            if (read && group != null) {
+                for (String replicaId : group.getReplicaIds()) {
+                    await(initialize(replicaId));
+                }
             }
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Connection connection;
+            if (group == null) {
+                connection = dataSource.getConnection();
+            } else {
+                connection = read ? group.getReadConnection() : group.getWriteConnection();
+            }
+            failed = false;
+            return connection;
+        } finally {
+            metrics.recordAcquisition(dataSourceId, System.nanoTime() - start, failed);
+        }
+    }
 
-            UniqueConstraint uniqueConstraint = clazz.getAnnotation(UniqueConstraint.class);
-            if (uniqueConstraint != null) {
-                query.append("  UNIQUE (").append(String.join(", ", uniqueConstraint.columns())).append("),\n");
+    // Starts the pool of a data source and sets up its tables, once. A failed attempt is retried by the next caller.
+    private @NotNull CompletableFuture<Void> initialize(@NotNull String dataSourceId) {
+        CompletableFuture<Void> initialization = initializations.get(dataSourceId);
+        if (initialization != null) {
+            return initialization;
+        }
+        CompletableFuture<Void> created = new CompletableFuture<>();
+        initialization = initializations.putIfAbsent(dataSourceId, created);
+        if (initialization != null) {
+            return initialization;
+        }
+        executor.execute(() -> {
+            try {
+                initializeDataSource(dataSourceId);
+                created.complete(null);
+            } catch (Throwable e) {
+                initializations.remove(dataSourceId, created);
+                created.completeExceptionally(e);
             }
+        });
+        return created;
+    }
 
-            query.setLength(query.length() - 2);
-            query.append("\n);");
-            executeQuery(source, query.toString());
+    private void initializeDataSource(@NotNull String dataSourceId) throws SQLException {
+        HikariDataSource dataSource = dataSources.get(dataSourceId);
+        long start = System.nanoTime();
+        try (Connection ignored = dataSource.getConnection()) {
+            LOGGER.info("Connection established for data source with ID: {} ({} ms)", dataSourceId, (System.nanoTime() - start) / 1_000_000);
+        }
+        List<TableSchema> dataSourceTables = tables.get(dataSourceId);
+        if (dataSourceTables != null) {
+            new SchemaBootstrap(migrationMode, allowCopyMigrations).bootstrap(dataSourceId, dataSource, dataSourceTables);
         }
     }
 
-    private static @NotNull String getColumnName(Field field, SopraTable annotation, Column column) {
-        boolean snakeCase = annotation.snakeCase();
-        String columnName;
-        if (column != null) {
-            if (column.name().isEmpty()) {
-                columnName = !snakeCase ? field.getName() : field.getName().replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
-            } else {
-                columnName = column.name();
+    private @NotNull CompletableFuture<Void> getDataSourceReadiness(@NotNull String dataSourceId) {
+        return readiness.compute(dataSourceId, (id, ready) -> (ready != null && !ready.isCompletedExceptionally())
+                ? ready
+                : initialize(id).thenRunAsync(() -> warmUp(id), executor));
+    }
+
+    // Hikari opens the minimum idle connections in the background; this waits until it got there.
+    private void warmUp(@NotNull String dataSourceId) {
+        HikariDataSource dataSource = dataSources.get(dataSourceId);
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        int target = Math.min(dataSource.getMinimumIdle(), dataSource.getMaximumPoolSize());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(dataSource.getConnectionTimeout());
+        try {
+            while (pool != null && pool.getTotalConnections() < target) {
+                if (System.nanoTime() > deadline) {
+                    LOGGER.warn("Pool of data source {} has {} of {} connections after {} ms", dataSourceId,
+                            pool.getTotalConnections(), target, dataSource.getConnectionTimeout());
+                    return;
+                }
+                Thread.sleep(WARM_UP_POLL_MILLIS);
             }
-        } else {
-            columnName = snakeCase ?
-                    field.getName().replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase() :
-                    field.getName();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        return columnName;
     }
 
-    private void executeQuery(@NotNull HikariDataSource dataSource, @NotNull String query) {
-        try (Connection connection = dataSource.getConnection()) {
-            connection.createStatement().execute(query);
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to execute query: " + query, e);
+    private static void await(@NotNull CompletableFuture<Void> future) throws SQLException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to initialize data source", e.getCause());
         }
     }
 
-    private String getSqlType(@NotNull Class<?> type, @Nullable Column column) {
-        if (SQL_TYPES.containsKey(type)) {
-            return SQL_TYPES.get(type);
+    private @NotNull Set<Class<?>> findEntityClasses(@NotNull Class<?> baseClass) {
+        if (entityIndex != null) {
+            LOGGER.debug("Loaded {} entity classes from compile-time index", entityIndex.getClasses().size());
+            return entityIndex.getClasses();
         }
-        if (type.isEnum()) {
-            return "VARCHAR(50)";
+        LOGGER.debug("No entity index found, scanning package {}", baseClass.getPackageName());
+        return new Reflections(baseClass.getPackageName()).getTypesAnnotatedWith(SopraTable.class);
+    }
+
+    private void setupTables() {
+        Map<String, HikariDataSource> primaries = new HashMap<>();
+        groups.forEach((id, group) -> primaries.put(id, group.getPrimary()));
+        new SchemaBootstrap(migrationMode, allowCopyMigrations).run(primaries, tables);
+        for (String dataSourceId : dataSources.keySet()) {
+            initializations.put(dataSourceId, CompletableFuture.completedFuture(null));
         }
-        if (type == String.class) {
-            return "VARCHAR(" + (column != null ? column.length() : 255) + ")";
+    }
+
+    private @NotNull Map<String, List<TableSchema>> collectTables() {
+        Set<Class<?>> classes = entityClasses;
+        Set<Class<?>> handledClasses = new HashSet<>();
+        Map<String, List<TableSchema>> tables = new HashMap<>();
+
+        // Replicas receive their schema through replication, so only primaries are set up.
+        for (String dataSourceId : groups.keySet()) {
+            List<TableSchema> dataSourceTables = new ArrayList<>();
+            for (Class<?> clazz : classes) {
+                EntityMetadata<?> metadata = metadataRegistry.get(clazz);
+                ShardRing shardRing = shardRings.get(metadata.getDataSourceId());
+                // Every shard of a group gets the full table.
+                if (metadata.getDataSourceId().equalsIgnoreCase(dataSourceId) || (shardRing != null && shardRing.getShardIds().contains(dataSourceId))) {
+                    dataSourceTables.add(new TableSchema(metadata));
+                    handledClasses.add(clazz);
+                }
+            }
+            if (!dataSourceTables.isEmpty()) {
+                tables.put(dataSourceId, dataSourceTables);
+            }
         }
-        return "LONGTEXT";
+        warnOfUnhandledClasses(classes, handledClasses);
+        return tables;
     }
 
+    private void warnOfUnhandledClasses(@NotNull Set<Class<?>> allClasses, @NotNull Set<Class<?>> handledClasses) {
+        Set<Class<?>> unhandledClasses = allClasses.stream()
+                .filter(clazz -> !handledClasses.contains(clazz))
+                .collect(Collectors.toSet());
+
+        if (!unhandledClasses.isEmpty()) {
+            String classNames = unhandledClasses.stream()
+                    .map(Class::getName)
+                    .collect(Collectors.joining(", "));
+            LOGGER.warn("The following classes were not handled by any data source: {}", classNames);
+        }
+    }
 
 }
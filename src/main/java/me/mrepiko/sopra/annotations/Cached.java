@@ -0,0 +1,15 @@
+package me.mrepiko.sopra.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cached {
+    long maximumSize() default 10_000;
+    long maximumWeight() default 0;
+    long expireAfterWriteSeconds() default 0;
+    boolean writeThrough() default false;
+}
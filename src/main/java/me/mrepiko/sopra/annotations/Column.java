@@ -11,4 +11,6 @@ public @interface Column {
     String name() default "";
     boolean nullable() default false;
     int length() default 255;
+    // Overrides the column type chosen by the field's codec, for example MEDIUMBLOB instead of LONGBLOB.
+    String type() default "";
 }
@@ -0,0 +1,16 @@
+package me.mrepiko.sopra.annotations;
+
+import java.lang.annotation.*;
+
+// Secondary index. On a field, columns defaults to the field's column. lengths gives a prefix length per column,
+// 0 meaning the whole value. include appends columns after the key, so queries reading only them are covered.
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD})
+@Repeatable(Indexes.class)
+public @interface Index {
+    String name() default "";
+    String[] columns() default {};
+    int[] lengths() default {};
+    String[] include() default {};
+    boolean unique() default false;
+}
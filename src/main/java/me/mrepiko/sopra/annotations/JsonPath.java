@@ -0,0 +1,14 @@
+package me.mrepiko.sopra.annotations;
+
+import java.lang.annotation.*;
+
+// Exposes a value inside a JSON field as a virtual generated column, indexed unless told otherwise.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+@Repeatable(JsonPaths.class)
+public @interface JsonPath {
+    String column();
+    String path();
+    String type() default "VARCHAR(255)";
+    boolean indexed() default true;
+}
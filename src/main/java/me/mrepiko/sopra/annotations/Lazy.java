@@ -0,0 +1,11 @@
+package me.mrepiko.sopra.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Leaves the column out of entity queries. The field is a LazyColumn, which reads the value by the row's id on first access.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Lazy { }
@@ -1,12 +1,11 @@
 package me.mrepiko.sopra.annotations;
 
-import java.lang.annotation.ElementType;
-import java.lang.annotation.Retention;
-import java.lang.annotation.RetentionPolicy;
-import java.lang.annotation.Target;
+import java.lang.annotation.*;
 
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.TYPE)
+@Repeatable(UniqueConstraints.class)
 public @interface UniqueConstraint {
+    String name() default "";
     String[] columns();
 }
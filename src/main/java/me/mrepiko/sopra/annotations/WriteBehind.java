@@ -0,0 +1,14 @@
+package me.mrepiko.sopra.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Buffers updates in memory, keeping only the latest per @Id, and writes them in batches.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface WriteBehind {
+    int maxPending() default 1_000;
+    long flushIntervalMillis() default 1_000;
+}
@@ -0,0 +1,51 @@
+package me.mrepiko.sopra.async;
+
+import me.mrepiko.sopra.repository.BatchResult;
+import me.mrepiko.sopra.repository.LongObjectMap;
+import me.mrepiko.sopra.repository.Page;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Repository operations on virtual threads, limited per data source to the size of its pool.
+// Futures of operations the limiter turns away fail with a RejectedExecutionException.
+public interface AsyncRepository<T> {
+
+    @NotNull
+    CompletableFuture<Void> insert(@NotNull T entity);
+
+    @NotNull
+    CompletableFuture<BatchResult> insertAll(@NotNull Collection<T> entities);
+
+    @NotNull
+    CompletableFuture<BatchResult> upsertAll(@NotNull Collection<T> entities);
+
+    // Completes with null when no row has the id.
+    @NotNull
+    CompletableFuture<T> findById(@NotNull Object id);
+
+    @NotNull
+    CompletableFuture<LongObjectMap<T>> findAllByIds(@NotNull long[] ids);
+
+    @NotNull
+    CompletableFuture<List<T>> findAll();
+
+    @NotNull
+    CompletableFuture<Page<T>> findPage(@Nullable String cursor, int limit);
+
+    @NotNull
+    CompletableFuture<Boolean> update(@NotNull T entity);
+
+    @NotNull
+    CompletableFuture<BatchResult> updateAll(@NotNull Collection<T> entities);
+
+    @NotNull
+    CompletableFuture<Boolean> delete(@NotNull T entity);
+
+    @NotNull
+    CompletableFuture<Boolean> deleteById(@NotNull Object id);
+
+}
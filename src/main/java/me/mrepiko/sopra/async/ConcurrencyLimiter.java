@@ -0,0 +1,129 @@
+package me.mrepiko.sopra.async;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lets at most as many operations run on a data source as its pool has connections, so the excess waits here
+// on a cheap semaphore or fails fast, instead of every caller timing out inside the pool.
+public final class ConcurrencyLimiter {
+
+    @Getter
+    private final String dataSourceId;
+    @Getter
+    private final int maxConcurrency;
+    private final OverloadPolicy policy;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public ConcurrencyLimiter(@NotNull String dataSourceId, int maxConcurrency, @NotNull OverloadPolicy policy, int maxQueued, long queueTimeoutNanos) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency limit of data source " + dataSourceId + " must be positive");
+        }
+        this.dataSourceId = dataSourceId;
+        this.maxConcurrency = maxConcurrency;
+        this.policy = policy;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutNanos = queueTimeoutNanos;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    // Runs the task on the executor once a slot is free. Rejections when nothing may queue happen on the calling thread.
+    @NotNull
+    public <R> CompletableFuture<R> submit(@NotNull Callable<R> task, @NotNull Executor executor) {
+        if (permits.tryAcquire()) {
+            return run(task, executor, false);
+        }
+        if (policy == OverloadPolicy.REJECT) {
+            return reject("all " + maxConcurrency + " slots are busy");
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return reject(maxQueued + " operations are already waiting");
+        }
+        return run(task, executor, true);
+    }
+
+    public int getActive() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @NotNull
+    private <R> CompletableFuture<R> run(@NotNull Callable<R> task, @NotNull Executor executor, boolean waiting) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (waiting && !await(future)) {
+                    return;
+                }
+                // The slot is freed before completing, so callbacks chained on the future can use it right away.
+                R result = null;
+                Throwable failure = null;
+                try {
+                    result = task.call();
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    permits.release();
+                }
+                if (failure != null) {
+                    future.completeExceptionally(failure);
+                } else {
+                    future.complete(result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (waiting) {
+                queued.decrementAndGet();
+            } else {
+                permits.release();
+            }
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // Waits for a slot on the virtual thread of the operation. False when the future was failed instead.
+    private boolean await(@NotNull CompletableFuture<?> future) {
+        try {
+            if (permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            rejected.increment();
+            future.completeExceptionally(new RejectedExecutionException("Data source " + dataSourceId
+                    + " had no free slot within " + TimeUnit.NANOSECONDS.toMillis(queueTimeoutNanos) + " ms"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } finally {
+            queued.decrementAndGet();
+        }
+        return false;
+    }
+
+    @NotNull
+    private <R> CompletableFuture<R> reject(@NotNull String reason) {
+        rejected.increment();
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Data source " + dataSourceId + " is overloaded: " + reason));
+    }
+
+}
@@ -0,0 +1,11 @@
+package me.mrepiko.sopra.async;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ConnectionFunction<R> {
+    R apply(@NotNull Connection connection) throws SQLException;
+}
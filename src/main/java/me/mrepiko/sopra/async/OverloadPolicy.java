@@ -0,0 +1,8 @@
+package me.mrepiko.sopra.async;
+
+public enum OverloadPolicy {
+    // Operations beyond the pool size fail at once with a RejectedExecutionException.
+    REJECT,
+    // Operations beyond the pool size wait for a free slot, up to the queue length and timeout.
+    QUEUE
+}
@@ -0,0 +1,14 @@
+package me.mrepiko.sopra.async;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+
+// How async operations behave once a data source runs as many as its pool has connections.
+// Without a queue timeout, operations wait as long as the pool's connection timeout.
+public record OverloadSettings(@NotNull OverloadPolicy policy, int maxQueued, @Nullable Duration queueTimeout) {
+
+    public static final OverloadSettings DEFAULT = new OverloadSettings(OverloadPolicy.QUEUE, Integer.MAX_VALUE, null);
+
+}
@@ -0,0 +1,102 @@
+package me.mrepiko.sopra.async;
+
+import me.mrepiko.sopra.SopraApi;
+import me.mrepiko.sopra.repository.BatchResult;
+import me.mrepiko.sopra.repository.LongObjectMap;
+import me.mrepiko.sopra.repository.Page;
+import me.mrepiko.sopra.repository.SopraRepository;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public final class SopraAsyncRepository<T> implements AsyncRepository<T> {
+
+    private final SopraRepository<T> repository;
+    private final SopraApi sopra;
+    private final String dataSourceId;
+    private final Executor executor;
+
+    public SopraAsyncRepository(@NotNull SopraRepository<T> repository, @NotNull SopraApi sopra, @NotNull String dataSourceId,
+                                @NotNull Executor executor) {
+        this.repository = repository;
+        this.sopra = sopra;
+        this.dataSourceId = dataSourceId;
+        this.executor = executor;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> insert(@NotNull T entity) {
+        return submit(() -> {
+            repository.insert(entity);
+            return null;
+        });
+    }
+
+    @Override
+    public @NotNull CompletableFuture<BatchResult> insertAll(@NotNull Collection<T> entities) {
+        return submit(() -> repository.insertAll(entities));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<BatchResult> upsertAll(@NotNull Collection<T> entities) {
+        return submit(() -> repository.upsertAll(entities));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<T> findById(@NotNull Object id) {
+        return submitRead(() -> repository.findById(id));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<LongObjectMap<T>> findAllByIds(@NotNull long[] ids) {
+        // One connection per data source, the one slot the operation holds.
+        return submitRead(() -> repository.findAllByIds(ids, 1));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<List<T>> findAll() {
+        return submitRead(repository::findAll);
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Page<T>> findPage(@Nullable String cursor, int limit) {
+        return submitRead(() -> repository.findPage(cursor, limit));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Boolean> update(@NotNull T entity) {
+        return submit(() -> repository.update(entity));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<BatchResult> updateAll(@NotNull Collection<T> entities) {
+        return submit(() -> repository.updateAll(entities));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Boolean> delete(@NotNull T entity) {
+        return submit(() -> repository.delete(entity));
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Boolean> deleteById(@NotNull Object id) {
+        return submit(() -> repository.deleteById(id));
+    }
+
+    @NotNull
+    private <R> CompletableFuture<R> submit(@NotNull Callable<R> operation) {
+        return sopra.getLimiter(dataSourceId).submit(operation, executor);
+    }
+
+    // Reads are counted against the pools that serve them, the replicas unless reads currently go to the primary.
+    @NotNull
+    private <R> CompletableFuture<R> submitRead(@NotNull Callable<R> operation) {
+        return sopra.getReadLimiter(dataSourceId).submit(operation, executor);
+    }
+
+}
@@ -0,0 +1,83 @@
+package me.mrepiko.sopra.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.Getter;
+import me.mrepiko.sopra.annotations.Cached;
+import me.mrepiko.sopra.codec.LargeObjectCodec;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+// Caches copies of entities by id. Copies share no mutable values, so changing an entity in place never changes the cached
+// row. Lazy and large object columns cannot be copied, so entities with them are not cached.
+public final class EntityCache<T> {
+
+    private final EntityMetadata<T> metadata;
+    private final ColumnMetadata idColumn;
+    private final Cache<Object, T> cache;
+    @Getter
+    private final boolean writeThrough;
+
+    public EntityCache(@NotNull EntityMetadata<T> metadata, @NotNull Cached settings, @NotNull ToIntFunction<T> weigher) {
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (column.isLazy() || column.getCodec() instanceof LargeObjectCodec<?>) {
+                throw new IllegalStateException("Entity " + metadata.getType().getName() + " is @Cached but " + column.getFieldName()
+                        + " is a lazy or large object column, which cannot be shared with the cache");
+            }
+        }
+        this.metadata = metadata;
+        this.idColumn = metadata.requireIdColumn();
+        this.writeThrough = settings.writeThrough();
+
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (settings.maximumWeight() > 0) {
+            builder.maximumWeight(settings.maximumWeight()).weigher((Object key, Object value) -> weigher.applyAsInt(metadata.getType().cast(value)));
+        } else {
+            builder.maximumSize(settings.maximumSize());
+        }
+        if (settings.expireAfterWriteSeconds() > 0) {
+            builder.expireAfterWrite(Duration.ofSeconds(settings.expireAfterWriteSeconds()));
+        }
+        this.cache = builder.build();
+    }
+
+    @Nullable
+    public T get(@NotNull Object id) {
+        T entity = cache.getIfPresent(EntityMetadata.normalizeId(id));
+        return (entity != null) ? metadata.copy(entity) : null;
+    }
+
+    public void put(@NotNull T entity) {
+        Object id = idColumn.get(entity);
+        if (id != null) {
+            cache.put(EntityMetadata.normalizeId(id), metadata.copy(entity));
+        }
+    }
+
+    public void invalidate(@Nullable Object id) {
+        if (id != null) {
+            cache.invalidate(EntityMetadata.normalizeId(id));
+        }
+    }
+
+    public void invalidateEntity(@NotNull T entity) {
+        invalidate(idColumn.get(entity));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @NotNull
+    public EntityCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new EntityCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.evictionWeight(), cache.estimatedSize());
+    }
+
+}
@@ -0,0 +1,10 @@
+package me.mrepiko.sopra.cache;
+
+public record EntityCacheStats(long hits, long misses, long evictions, long evictionWeight, long size) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return (requests == 0) ? 1.0 : (double) hits / requests;
+    }
+
+}
@@ -0,0 +1,103 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Resolves the codec of a field: codecs registered for its exact type, then factories (latest first), then the built-ins.
+// Types nothing else handles are stored as JSON.
+public final class CodecRegistry {
+
+    private final Map<Class<?>, TypeCodec<?>> codecs = new ConcurrentHashMap<>();
+    private final List<TypeCodecFactory> factories = new CopyOnWriteArrayList<>();
+    private final Map<Class<?>, TypeCodec<?>> enumCodecs = new ConcurrentHashMap<>();
+    private final Map<Class<?>, TypeCodec<?>> nativeEnumCodecs = new ConcurrentHashMap<>();
+    private volatile boolean compactTypes;
+
+    @NotNull
+    public <V> CodecRegistry register(@NotNull Class<V> type, @NotNull TypeCodec<V> codec) {
+        codecs.put(type, codec);
+        return this;
+    }
+
+    @NotNull
+    public CodecRegistry register(@NotNull TypeCodecFactory factory) {
+        factories.addFirst(factory);
+        return this;
+    }
+
+    // UUIDs as BINARY(16), Instants as BIGINT milliseconds and enums as native ENUM columns. Meant for new tables:
+    // MySQL cannot convert existing text UUIDs or timestamps on its own.
+    @NotNull
+    public CodecRegistry useCompactTypes() {
+        register(UUID.class, TypeCodecs.uuidAsBinary());
+        register(Instant.class, TypeCodecs.instantAsMillis());
+        compactTypes = true;
+        return this;
+    }
+
+    @NotNull
+    public TypeCodec<?> get(@NotNull Field field) {
+        return get(field, field.getGenericType());
+    }
+
+    // Codec for values of the given type stored through the field, such as the V of a LazyColumn<V>.
+    @NotNull
+    public TypeCodec<?> get(@NotNull Field field, @NotNull Type valueType) {
+        Class<?> type = rawType(valueType);
+        TypeCodec<?> codec = codecs.get(type);
+        if (codec != null) {
+            return codec;
+        }
+        for (TypeCodecFactory factory : factories) {
+            codec = factory.create(field);
+            if (codec != null) {
+                return codec;
+            }
+        }
+        codec = TypeCodecs.DEFAULTS.get(type);
+        if (codec != null) {
+            return codec;
+        }
+        // Checked on the value type so that a LazyColumn<SomeEnum> gets the same column as a plain enum field.
+        if (type.isEnum() && compactTypes) {
+            return nativeEnumCodec(type);
+        }
+        if (type.isEnum()) {
+            return enumCodecs.computeIfAbsent(type, CodecRegistry::enumNameCodec);
+        }
+        return TypeCodecs.json(valueType);
+    }
+
+    @NotNull
+    public static Class<?> rawType(@NotNull Type type) {
+        if (type instanceof Class<?> clazz) {
+            return clazz;
+        }
+        if (type instanceof ParameterizedType parameterizedType) {
+            return (Class<?>) parameterizedType.getRawType();
+        }
+        throw new IllegalArgumentException("Cannot store values of type " + type.getTypeName());
+    }
+
+    @NotNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TypeCodec<?> enumNameCodec(@NotNull Class<?> type) {
+        return TypeCodecs.enumAsName((Class) type);
+    }
+
+    @NotNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private TypeCodec<?> nativeEnumCodec(@NotNull Class<?> type) {
+        return nativeEnumCodecs.computeIfAbsent(type, x -> TypeCodecs.enumAsNative((Class) type));
+    }
+
+}
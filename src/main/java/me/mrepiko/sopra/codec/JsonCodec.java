@@ -0,0 +1,145 @@
+package me.mrepiko.sopra.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import me.mrepiko.sopra.annotations.Column;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Values are encoded straight to UTF-8 bytes. List, Set, Map and Collection fields are only parsed once accessed.
+final class JsonCodec<V> implements TypeCodec<V> {
+
+    private static final byte[] JSON_NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final Kind kind;
+
+    JsonCodec(@NotNull ObjectMapper mapper, @NotNull JavaType type) {
+        this.reader = mapper.readerFor(type);
+        this.writer = mapper.writerFor(type);
+        this.kind = Kind.of(type.getRawClass());
+    }
+
+    @NotNull
+    @Override
+    public String getSqlType(@NotNull Field field, @Nullable Column column) {
+        return "JSON";
+    }
+
+    // Bytes are bound as a binary string, which a JSON column refuses, so they are converted to text on the server.
+    @NotNull
+    @Override
+    public String getPlaceholder() {
+        return "CONVERT(? USING utf8mb4)";
+    }
+
+    @Override
+    public void bind(@NotNull PreparedStatement statement, int index, @Nullable V value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARBINARY);
+            return;
+        }
+        if (value instanceof LazyJsonValue lazy) {
+            byte[] bytes = lazy.getUnparsedBytes();
+            if (bytes != null) {
+                statement.setBytes(index, bytes);
+                return;
+            }
+        }
+        try {
+            statement.setBytes(index, writer.writeValueAsBytes(value));
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Failed to serialize value of type " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public V read(@NotNull ResultSet resultSet, int index) throws SQLException {
+        byte[] bytes = resultSet.getBytes(index);
+        if (bytes == null || Arrays.equals(bytes, JSON_NULL)) {
+            return null;
+        }
+        try {
+            return fromBytes(bytes);
+        } catch (IOException e) {
+            throw new SQLException("Failed to deserialize value of type " + reader.getValueType(), e);
+        }
+    }
+
+    // Unparsed JSON is never changed, so a copy shares its bytes and parses them on its own.
+    @Override
+    public V copy(@Nullable V value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = (value instanceof LazyJsonValue lazy) ? lazy.getUnparsedBytes() : null;
+        try {
+            return fromBytes((bytes != null) ? bytes : writer.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy value of type " + reader.getValueType(), e);
+        }
+    }
+
+    @Override
+    public int estimateSize(@NotNull V value) {
+        if (value instanceof LazyJsonValue lazy) {
+            byte[] bytes = lazy.getUnparsedBytes();
+            if (bytes != null) {
+                return bytes.length * 2 + 3;
+            }
+        }
+        return TypeCodec.super.estimateSize(value);
+    }
+
+    @NotNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private V fromBytes(@NotNull byte[] bytes) throws IOException {
+        return switch (kind) {
+            case LIST -> (V) new LazyJsonList<>(new LazyJson<List<Object>>(reader, bytes));
+            case SET -> (V) new LazyJsonSet<>(new LazyJson<Set<Object>>(reader, bytes));
+            case MAP -> (V) new LazyJsonMap<>(new LazyJson<Map<Object, Object>>(reader, bytes));
+            case EAGER -> reader.readValue(bytes);
+        };
+    }
+
+    // Lazy wrappers only replace interface types, so a field declared as ArrayList still gets an ArrayList.
+    private enum Kind {
+        LIST,
+        SET,
+        MAP,
+        EAGER;
+
+        @NotNull
+        static Kind of(@NotNull Class<?> type) {
+            if (type == List.class || type == Collection.class) {
+                return LIST;
+            }
+            if (type == Set.class) {
+                return SET;
+            }
+            if (type == Map.class) {
+                return MAP;
+            }
+            return EAGER;
+        }
+    }
+
+}
@@ -0,0 +1,18 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Codec of a value bound as a stream. Statements writing such columns are prepared on the server, so the driver sends
+// the value in chunks rather than building it into a single packet.
+public interface LargeObjectCodec<V> extends TypeCodec<V> {
+
+    // Whether queries skip the column and fetch it in fixed-size chunks, handing the chunks to fromStream.
+    boolean isDeferred();
+
+    @NotNull
+    V fromStream(@NotNull InputStream stream, long length) throws IOException;
+
+}
@@ -0,0 +1,226 @@
+package me.mrepiko.sopra.codec;
+
+import me.mrepiko.sopra.annotations.Column;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+// Codecs of InputStream, Path and ByteBuffer fields, stored as LONGBLOB unless @Column names another type.
+final class LargeObjectCodecs {
+
+    static final LargeObjectCodec<InputStream> INPUT_STREAM = new InputStreamCodec();
+    static final LargeObjectCodec<Path> PATH = new PathCodec();
+    static final LargeObjectCodec<ByteBuffer> BYTE_BUFFER = new ByteBufferCodec();
+
+    private LargeObjectCodecs() { }
+
+    private abstract static class BlobCodec<V> implements LargeObjectCodec<V> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return "LONGBLOB";
+        }
+
+    }
+
+    // The stream is consumed by the write. Reads return a stream fetching the column in chunks as it is read.
+    private static final class InputStreamCodec extends BlobCodec<InputStream> {
+
+        @Override
+        public boolean isDeferred() {
+            return true;
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable InputStream value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.LONGVARBINARY);
+            } else {
+                statement.setBinaryStream(index, value);
+            }
+        }
+
+        @Override
+        public InputStream read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            return resultSet.getBinaryStream(index);
+        }
+
+        @NotNull
+        @Override
+        public InputStream fromStream(@NotNull InputStream stream, long length) {
+            return stream;
+        }
+
+        @Override
+        public int estimateSize(@NotNull InputStream value) {
+            return Integer.MAX_VALUE;
+        }
+
+    }
+
+    // Reads copy the column into a new temporary file. The caller owns it and deletes it once done; nothing else does.
+    private static final class PathCodec extends BlobCodec<Path> {
+
+        @Override
+        public boolean isDeferred() {
+            return true;
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable Path value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.LONGVARBINARY);
+                return;
+            }
+            try {
+                statement.setBinaryStream(index, new ClosingInputStream(new FileInputStream(value.toFile())), Files.size(value));
+            } catch (IOException e) {
+                throw new SQLException("Failed to open " + value, e);
+            }
+        }
+
+        @Override
+        public Path read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            InputStream stream = resultSet.getBinaryStream(index);
+            if (stream == null) {
+                return null;
+            }
+            try {
+                return fromStream(stream, -1);
+            } catch (IOException e) {
+                throw new SQLException("Failed to copy column to a temporary file", e);
+            }
+        }
+
+        @NotNull
+        @Override
+        public Path fromStream(@NotNull InputStream stream, long length) throws IOException {
+            Path file = Files.createTempFile("sopra-", ".blob");
+            try (stream) {
+                Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return file;
+        }
+
+        @Override
+        public int estimateSize(@NotNull Path value) {
+            try {
+                return (int) Math.min(Integer.MAX_VALUE, Files.size(value) * 2);
+            } catch (IOException e) {
+                return Integer.MAX_VALUE;
+            }
+        }
+
+    }
+
+    // Already in memory, so it is read with the row. Writes stream the remaining bytes without copying them to an array.
+    private static final class ByteBufferCodec extends BlobCodec<ByteBuffer> {
+
+        @Override
+        public boolean isDeferred() {
+            return false;
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable ByteBuffer value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.LONGVARBINARY);
+            } else {
+                ByteBuffer buffer = value.duplicate();
+                statement.setBinaryStream(index, new ByteBufferInputStream(buffer), buffer.remaining());
+            }
+        }
+
+        @Override
+        public ByteBuffer read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            byte[] bytes = resultSet.getBytes(index);
+            return (bytes != null) ? ByteBuffer.wrap(bytes) : null;
+        }
+
+        @NotNull
+        @Override
+        public ByteBuffer fromStream(@NotNull InputStream stream, long length) throws IOException {
+            try (stream) {
+                return ByteBuffer.wrap(stream.readAllBytes());
+            }
+        }
+
+        @Override
+        public int estimateSize(@NotNull ByteBuffer value) {
+            return (int) Math.min(Integer.MAX_VALUE, value.remaining() * 2L + 3);
+        }
+
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(@NotNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+    // The driver reads a bound stream during execution but never closes it, so the file is closed once fully read.
+    private static final class ClosingInputStream extends FilterInputStream {
+
+        private ClosingInputStream(@NotNull InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read < 0) {
+                close();
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read < 0) {
+                close();
+            }
+            return read;
+        }
+
+    }
+
+}
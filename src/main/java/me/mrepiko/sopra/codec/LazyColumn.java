@@ -0,0 +1,73 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Supplier;
+
+// Value of a field annotated with @Lazy. Rows read by the repository leave it unloaded, and get() loads it with its own
+// query the first time it is called. Updates skip columns that were never loaded.
+public final class LazyColumn<V> {
+
+    @Nullable
+    private Supplier<V> loader;
+    @Nullable
+    private V value;
+    // Copy of the value as loaded, so changes made to it in place are still written.
+    @Nullable
+    private Object loadedSnapshot;
+    private boolean set;
+
+    private LazyColumn(@Nullable Supplier<V> loader, @Nullable V value, boolean set) {
+        this.loader = loader;
+        this.value = value;
+        this.set = set;
+    }
+
+    // A value to write, as for a new entity.
+    @NotNull
+    public static <V> LazyColumn<V> of(@Nullable V value) {
+        return new LazyColumn<>(null, value, true);
+    }
+
+    @NotNull
+    public static <V> LazyColumn<V> deferred(@NotNull Supplier<V> loader) {
+        return new LazyColumn<>(loader, null, false);
+    }
+
+    @Nullable
+    public synchronized V get() {
+        if (loader != null) {
+            value = loader.get();
+            loadedSnapshot = ValueSnapshots.take(value);
+            loader = null;
+        }
+        return value;
+    }
+
+    public synchronized void set(@Nullable V value) {
+        this.value = value;
+        this.loader = null;
+        this.set = true;
+    }
+
+    public synchronized boolean isLoaded() {
+        return loader == null;
+    }
+
+    // The value without loading it, null while it is not loaded.
+    @Nullable
+    synchronized V peek() {
+        return value;
+    }
+
+    synchronized boolean isChangedSinceLoad() {
+        return set || ValueSnapshots.isChanged(loadedSnapshot, value);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return (loader != null) ? "LazyColumn[not loaded]" : "LazyColumn[" + value + "]";
+    }
+
+}
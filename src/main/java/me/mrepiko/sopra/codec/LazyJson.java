@@ -0,0 +1,47 @@
+package me.mrepiko.sopra.codec;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// JSON read from a column but not parsed yet. Until something accesses the value, the original bytes are written back as they are.
+final class LazyJson<V> {
+
+    private final ObjectReader reader;
+    private volatile V value;
+    @Nullable
+    private byte[] bytes;
+
+    LazyJson(@NotNull ObjectReader reader, @NotNull byte[] bytes) {
+        this.reader = reader;
+        this.bytes = bytes;
+    }
+
+    @NotNull
+    V get() {
+        V value = this.value;
+        if (value != null) {
+            return value;
+        }
+        synchronized (this) {
+            if (this.value == null) {
+                try {
+                    this.value = reader.readValue(bytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to deserialize value of type " + reader.getValueType(), e);
+                }
+                bytes = null;
+            }
+            return this.value;
+        }
+    }
+
+    @Nullable
+    synchronized byte[] getUnparsedBytes() {
+        return bytes;
+    }
+
+}
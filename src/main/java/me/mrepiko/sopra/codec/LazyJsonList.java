@@ -0,0 +1,49 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+final class LazyJsonList<E> extends AbstractList<E> implements RandomAccess, LazyJsonValue {
+
+    private final LazyJson<List<E>> json;
+
+    LazyJsonList(@NotNull LazyJson<List<E>> json) {
+        this.json = json;
+    }
+
+    @Override
+    public E get(int index) {
+        return json.get().get(index);
+    }
+
+    @Override
+    public int size() {
+        return json.get().size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return json.get().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        json.get().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        modCount++;
+        return json.get().remove(index);
+    }
+
+    @Override
+    public byte[] getUnparsedBytes() {
+        return json.getUnparsedBytes();
+    }
+
+}
@@ -0,0 +1,53 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+
+final class LazyJsonMap<K, V> extends AbstractMap<K, V> implements LazyJsonValue {
+
+    private final LazyJson<Map<K, V>> json;
+
+    LazyJsonMap(@NotNull LazyJson<Map<K, V>> json) {
+        this.json = json;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return json.get().entrySet();
+    }
+
+    @Override
+    public int size() {
+        return json.get().size();
+    }
+
+    @Override
+    public V get(Object key) {
+        return json.get().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return json.get().containsKey(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return json.get().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return json.get().remove(key);
+    }
+
+    @Override
+    public byte[] getUnparsedBytes() {
+        return json.getUnparsedBytes();
+    }
+
+}
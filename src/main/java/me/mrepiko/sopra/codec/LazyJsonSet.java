@@ -0,0 +1,48 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+final class LazyJsonSet<E> extends AbstractSet<E> implements LazyJsonValue {
+
+    private final LazyJson<Set<E>> json;
+
+    LazyJsonSet(@NotNull LazyJson<Set<E>> json) {
+        this.json = json;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() {
+        return json.get().iterator();
+    }
+
+    @Override
+    public int size() {
+        return json.get().size();
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return json.get().contains(element);
+    }
+
+    @Override
+    public boolean add(E element) {
+        return json.get().add(element);
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        return json.get().remove(element);
+    }
+
+    @Override
+    public byte[] getUnparsedBytes() {
+        return json.getUnparsedBytes();
+    }
+
+}
@@ -0,0 +1,12 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.Nullable;
+
+// Collection backed by JSON that is parsed on first access.
+interface LazyJsonValue {
+
+    // The stored JSON while it is still unparsed, and so unchanged.
+    @Nullable
+    byte[] getUnparsedBytes();
+
+}
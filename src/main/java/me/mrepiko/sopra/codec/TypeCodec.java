@@ -0,0 +1,64 @@
+package me.mrepiko.sopra.codec;
+
+import me.mrepiko.sopra.annotations.Column;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+// Converts a Java type to and from a column. One instance serves every column of that type, so implementations must be thread-safe.
+public interface TypeCodec<V> {
+
+    // Column type used in CREATE TABLE and compared against the live schema by migrations.
+    @NotNull
+    String getSqlType(@NotNull Field field, @Nullable Column column);
+
+    // SQL expression a bound value is written through in INSERT and UPDATE statements.
+    @NotNull
+    default String getPlaceholder() {
+        return "?";
+    }
+
+    void bind(@NotNull PreparedStatement statement, int index, @Nullable V value) throws SQLException;
+
+    @Nullable
+    V read(@NotNull ResultSet resultSet, int index) throws SQLException;
+
+    // Rough number of bytes the value takes up in a client-side statement, used to size batches.
+    default int estimateSize(@NotNull V value) {
+        if (value instanceof CharSequence sequence) {
+            return sequence.length() * 4 + 2;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length * 2 + 3;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size() * 64 + 2;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size() * 128 + 2;
+        }
+        return 32;
+    }
+
+    // Copy of a value that shares no mutable state with it, so entities handed out by the cache cannot change each other.
+    // Codecs of other mutable types override it.
+    @Nullable
+    @SuppressWarnings("unchecked")
+    default V copy(@Nullable V value) {
+        if (value instanceof byte[] bytes) {
+            return (V) bytes.clone();
+        }
+        if (value instanceof Date date) {
+            return (V) date.clone();
+        }
+        return value;
+    }
+
+}
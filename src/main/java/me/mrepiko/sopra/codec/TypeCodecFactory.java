@@ -0,0 +1,15 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Field;
+
+// Creates codecs for a family of types, such as all enums. Returns null for fields it does not handle.
+@FunctionalInterface
+public interface TypeCodecFactory {
+
+    @Nullable
+    TypeCodec<?> create(@NotNull Field field);
+
+}
@@ -0,0 +1,418 @@
+package me.mrepiko.sopra.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.mrepiko.sopra.annotations.Column;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Built-in codecs. The compact ones trade readability of the stored values for size.
+public final class TypeCodecs {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<JavaType, TypeCodec<?>> JSON_CODECS = new ConcurrentHashMap<>();
+
+    private static final TypeCodec<Integer> INT = primitive("INT", Types.INTEGER, ResultSet::getInt);
+    private static final TypeCodec<Long> LONG = primitive("BIGINT", Types.BIGINT, ResultSet::getLong);
+    private static final TypeCodec<Double> DOUBLE = primitive("DOUBLE", Types.DOUBLE, ResultSet::getDouble);
+    private static final TypeCodec<Boolean> BOOLEAN = primitive("BOOLEAN", Types.BOOLEAN, ResultSet::getBoolean);
+    private static final TypeCodec<Float> FLOAT = primitive("FLOAT", Types.FLOAT, ResultSet::getFloat);
+    private static final TypeCodec<Short> SHORT = primitive("SMALLINT", Types.SMALLINT, ResultSet::getShort);
+    private static final TypeCodec<Byte> BYTE = primitive("TINYINT", Types.TINYINT, ResultSet::getByte);
+    private static final TypeCodec<String> STRING = new StringCodec();
+    private static final TypeCodec<UUID> UUID_STRING = new UuidStringCodec();
+    private static final TypeCodec<UUID> UUID_BINARY = new UuidBinaryCodec();
+    private static final TypeCodec<Instant> INSTANT_TEXT = new InstantTextCodec();
+    private static final TypeCodec<Instant> INSTANT_MILLIS = new InstantMillisCodec();
+
+    static final Map<Class<?>, TypeCodec<?>> DEFAULTS = Map.ofEntries(
+            Map.entry(int.class, INT),
+            Map.entry(long.class, LONG),
+            Map.entry(double.class, DOUBLE),
+            Map.entry(boolean.class, BOOLEAN),
+            Map.entry(float.class, FLOAT),
+            Map.entry(short.class, SHORT),
+            Map.entry(byte.class, BYTE),
+            Map.entry(Integer.class, nullable("INT", Types.INTEGER, ResultSet::getInt)),
+            Map.entry(Long.class, nullable("BIGINT", Types.BIGINT, ResultSet::getLong)),
+            Map.entry(Double.class, nullable("DOUBLE", Types.DOUBLE, ResultSet::getDouble)),
+            Map.entry(Boolean.class, nullable("BOOLEAN", Types.BOOLEAN, ResultSet::getBoolean)),
+            Map.entry(Float.class, nullable("FLOAT", Types.FLOAT, ResultSet::getFloat)),
+            Map.entry(Short.class, nullable("SMALLINT", Types.SMALLINT, ResultSet::getShort)),
+            Map.entry(Byte.class, nullable("TINYINT", Types.TINYINT, ResultSet::getByte)),
+            Map.entry(String.class, STRING),
+            Map.entry(Timestamp.class, primitive("TIMESTAMP", Types.TIMESTAMP, ResultSet::getTimestamp)),
+            Map.entry(LocalDateTime.class, primitive("DATETIME", Types.TIMESTAMP, (rs, i) -> rs.getObject(i, LocalDateTime.class))),
+            Map.entry(LocalDate.class, primitive("DATE", Types.DATE, (rs, i) -> rs.getObject(i, LocalDate.class))),
+            Map.entry(LocalTime.class, primitive("TIME", Types.TIME, (rs, i) -> rs.getObject(i, LocalTime.class))),
+            Map.entry(byte[].class, primitive("BLOB", Types.BLOB, ResultSet::getBytes)),
+            // The column types these had before codecs existed, so existing tables need no rebuild.
+            Map.entry(UUID.class, UUID_STRING),
+            Map.entry(Instant.class, INSTANT_TEXT),
+            Map.entry(InputStream.class, LargeObjectCodecs.INPUT_STREAM),
+            Map.entry(Path.class, LargeObjectCodecs.PATH),
+            Map.entry(ByteBuffer.class, LargeObjectCodecs.BYTE_BUFFER)
+    );
+
+    // Codecs the repository may bypass for primitives, reading and writing fields without boxing.
+    private static final Set<TypeCodec<?>> UNBOXED = Set.of(INT, LONG, DOUBLE, BOOLEAN, FLOAT, SHORT, BYTE);
+
+    private TypeCodecs() { }
+
+    public static boolean isUnboxed(@NotNull TypeCodec<?> codec) {
+        return UNBOXED.contains(codec);
+    }
+
+    // CHAR(36) in the canonical text form. The default for UUID fields.
+    @NotNull
+    public static TypeCodec<UUID> uuidAsString() {
+        return UUID_STRING;
+    }
+
+    // BINARY(16), most significant bits first, the same layout as MySQL's UUID_TO_BIN(uuid) without the swap flag.
+    @NotNull
+    public static TypeCodec<UUID> uuidAsBinary() {
+        return UUID_BINARY;
+    }
+
+    // LONGTEXT in ISO-8601 form, such as 2024-01-01T12:00:00Z. The default for Instant fields.
+    @NotNull
+    public static TypeCodec<Instant> instantAsText() {
+        return INSTANT_TEXT;
+    }
+
+    // BIGINT milliseconds since the epoch.
+    @NotNull
+    public static TypeCodec<Instant> instantAsMillis() {
+        return INSTANT_MILLIS;
+    }
+
+    // VARCHAR(50) holding the constant name. The default for enum fields.
+    @NotNull
+    public static <E extends Enum<E>> TypeCodec<E> enumAsName(@NotNull Class<E> type) {
+        return new EnumNameCodec<>(type, false);
+    }
+
+    // Native ENUM('A', 'B', ...) of the constant names, one or two bytes per row. Appending constants is an instant change.
+    @NotNull
+    public static <E extends Enum<E>> TypeCodec<E> enumAsNative(@NotNull Class<E> type) {
+        return new EnumNameCodec<>(type, true);
+    }
+
+    // TINYINT or SMALLINT ordinal. Smallest of all, but reordering the constants silently changes stored values.
+    @NotNull
+    public static <E extends Enum<E>> TypeCodec<E> enumAsOrdinal(@NotNull Class<E> type) {
+        return new EnumOrdinalCodec<>(type);
+    }
+
+    // Native JSON column. Used for every type without a codec of its own; one codec, and so one reader and writer, per type.
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <V> TypeCodec<V> json(@NotNull Type type) {
+        return (TypeCodec<V>) JSON_CODECS.computeIfAbsent(MAPPER.constructType(type), javaType -> new JsonCodec<>(MAPPER, javaType));
+    }
+
+    @NotNull
+    private static <V> TypeCodec<V> primitive(@NotNull String sqlType, int jdbcType, @NotNull ValueReader<V> reader) {
+        return new ValueCodec<>(sqlType, jdbcType, reader, false);
+    }
+
+    @NotNull
+    private static <V> TypeCodec<V> nullable(@NotNull String sqlType, int jdbcType, @NotNull ValueReader<V> reader) {
+        return new ValueCodec<>(sqlType, jdbcType, reader, true);
+    }
+
+    @FunctionalInterface
+    private interface ValueReader<V> {
+        V read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    private record ValueCodec<V>(@NotNull String sqlType, int jdbcType, @NotNull ValueReader<V> reader, boolean checkNull) implements TypeCodec<V> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return sqlType;
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable V value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, jdbcType);
+            } else {
+                statement.setObject(index, value);
+            }
+        }
+
+        @Override
+        public V read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            V value = reader.read(resultSet, index);
+            return (checkNull && resultSet.wasNull()) ? null : value;
+        }
+
+        @Override
+        public int estimateSize(@NotNull V value) {
+            return (value instanceof byte[] bytes) ? bytes.length * 2 + 3 : 20;
+        }
+
+    }
+
+    private static final class StringCodec implements TypeCodec<String> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return "VARCHAR(" + ((column != null) ? column.length() : 255) + ")";
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable String value) throws SQLException {
+            statement.setString(index, value);
+        }
+
+        @Override
+        public String read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            return resultSet.getString(index);
+        }
+
+    }
+
+    private static final class UuidStringCodec implements TypeCodec<UUID> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return "CHAR(36)";
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable UUID value) throws SQLException {
+            statement.setString(index, (value != null) ? value.toString() : null);
+        }
+
+        @Override
+        public UUID read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            String value = resultSet.getString(index);
+            return (value != null) ? UUID.fromString(value) : null;
+        }
+
+        @Override
+        public int estimateSize(@NotNull UUID value) {
+            return 40;
+        }
+
+    }
+
+    private static final class UuidBinaryCodec implements TypeCodec<UUID> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return "BINARY(16)";
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable UUID value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.BINARY);
+                return;
+            }
+            statement.setBytes(index, ByteBuffer.allocate(16)
+                    .putLong(value.getMostSignificantBits())
+                    .putLong(value.getLeastSignificantBits())
+                    .array());
+        }
+
+        @Override
+        public UUID read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            byte[] bytes = resultSet.getBytes(index);
+            if (bytes == null) {
+                return null;
+            }
+            if (bytes.length != 16) {
+                throw new SQLException("Expected 16 bytes for a UUID but got " + bytes.length);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+
+        @Override
+        public int estimateSize(@NotNull UUID value) {
+            return 35;
+        }
+
+    }
+
+    private static final class InstantTextCodec implements TypeCodec<Instant> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return "LONGTEXT";
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable Instant value) throws SQLException {
+            statement.setString(index, (value != null) ? value.toString() : null);
+        }
+
+        @Override
+        public Instant read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            String value = resultSet.getString(index);
+            return (value != null) ? Instant.parse(value) : null;
+        }
+
+        @Override
+        public int estimateSize(@NotNull Instant value) {
+            return 40;
+        }
+
+    }
+
+    private static final class InstantMillisCodec implements TypeCodec<Instant> {
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return "BIGINT";
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable Instant value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.BIGINT);
+            } else {
+                statement.setLong(index, value.toEpochMilli());
+            }
+        }
+
+        @Override
+        public Instant read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            long value = resultSet.getLong(index);
+            return resultSet.wasNull() ? null : Instant.ofEpochMilli(value);
+        }
+
+        @Override
+        public int estimateSize(@NotNull Instant value) {
+            return 20;
+        }
+
+    }
+
+    private static final class EnumNameCodec<E extends Enum<E>> implements TypeCodec<E> {
+
+        private final Class<E> type;
+        private final boolean nativeEnum;
+        private final Map<String, E> constants = new HashMap<>();
+
+        private EnumNameCodec(@NotNull Class<E> type, boolean nativeEnum) {
+            this.type = type;
+            this.nativeEnum = nativeEnum;
+            for (E constant : type.getEnumConstants()) {
+                constants.put(constant.name(), constant);
+            }
+        }
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            if (!nativeEnum) {
+                return "VARCHAR(50)";
+            }
+            StringBuilder sqlType = new StringBuilder("ENUM(");
+            E[] values = type.getEnumConstants();
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    sqlType.append(",");
+                }
+                sqlType.append("'").append(values[i].name().replace("'", "''")).append("'");
+            }
+            return sqlType.append(")").toString();
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable E value) throws SQLException {
+            statement.setString(index, (value != null) ? value.name() : null);
+        }
+
+        @Override
+        public E read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            String value = resultSet.getString(index);
+            if (value == null) {
+                return null;
+            }
+            E constant = constants.get(value);
+            if (constant == null) {
+                throw new SQLException("Unknown constant '" + value + "' for enum " + type.getName());
+            }
+            return constant;
+        }
+
+        @Override
+        public int estimateSize(@NotNull E value) {
+            return value.name().length() * 4 + 2;
+        }
+
+    }
+
+    private static final class EnumOrdinalCodec<E extends Enum<E>> implements TypeCodec<E> {
+
+        private final Class<E> type;
+        private final E[] constants;
+
+        private EnumOrdinalCodec(@NotNull Class<E> type) {
+            this.type = type;
+            this.constants = type.getEnumConstants();
+        }
+
+        @NotNull
+        @Override
+        public String getSqlType(@NotNull Field field, @Nullable Column column) {
+            return (constants.length <= 256) ? "TINYINT UNSIGNED" : "SMALLINT UNSIGNED";
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @Nullable E value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, Types.SMALLINT);
+            } else {
+                statement.setInt(index, value.ordinal());
+            }
+        }
+
+        @Override
+        public E read(@NotNull ResultSet resultSet, int index) throws SQLException {
+            int ordinal = resultSet.getInt(index);
+            if (resultSet.wasNull()) {
+                return null;
+            }
+            if (ordinal < 0 || ordinal >= constants.length) {
+                throw new SQLException("Unknown ordinal " + ordinal + " for enum " + type.getName());
+            }
+            return constants[ordinal];
+        }
+
+        @Override
+        public int estimateSize(@NotNull E value) {
+            return 20;
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package me.mrepiko.sopra.codec;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+import java.util.UUID;
+
+// Copies of column values for change detection. Values whose changes cannot be told apart cheaply always count as changed.
+public final class ValueSnapshots {
+
+    private static final Object UNTRACKED = new Object();
+    private static final Object NOT_LOADED = new Object();
+
+    private ValueSnapshots() { }
+
+    @Nullable
+    public static Object take(@Nullable Object value) {
+        if (value == null || isImmutable(value)) {
+            return value;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.clone();
+        }
+        if (value instanceof Date date) {
+            return date.clone();
+        }
+        // A stream or file loaded with the row is only written again once replaced.
+        if (value instanceof InputStream || value instanceof Path) {
+            return value;
+        }
+        // JSON that was never accessed cannot have been changed.
+        if (value instanceof LazyJsonValue lazy && lazy.getUnparsedBytes() != null) {
+            return value;
+        }
+        if (value instanceof LazyColumn<?> lazy) {
+            return new LazySnapshot(lazy, lazy.isLoaded() ? take(lazy.peek()) : NOT_LOADED);
+        }
+        return UNTRACKED;
+    }
+
+    public static boolean isChanged(@Nullable Object snapshot, @Nullable Object value) {
+        if (snapshot == UNTRACKED) {
+            return true;
+        }
+        if (snapshot == null || value == null) {
+            return snapshot != value;
+        }
+        if (snapshot instanceof byte[] bytes) {
+            return !(value instanceof byte[] current) || !Arrays.equals(bytes, current);
+        }
+        if (snapshot instanceof InputStream || snapshot instanceof Path) {
+            return snapshot != value;
+        }
+        if (snapshot instanceof LazyJsonValue) {
+            return snapshot != value || ((LazyJsonValue) value).getUnparsedBytes() == null;
+        }
+        if (snapshot instanceof LazySnapshot(LazyColumn<?> lazy, Object lazyValue)) {
+            // A column that was not loaded when the snapshot was taken can only have changed once loaded.
+            if (value != lazy || !lazy.isLoaded()) {
+                return value != lazy;
+            }
+            return (lazyValue == NOT_LOADED) ? lazy.isChangedSinceLoad() : isChanged(lazyValue, lazy.peek());
+        }
+        return !Objects.equals(snapshot, value);
+    }
+
+    private static boolean isImmutable(@NotNull Object value) {
+        Class<?> type = value.getClass();
+        return type == String.class || type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+                || type == Short.class || type == Byte.class || type == Boolean.class || type == Character.class
+                || type == BigDecimal.class || type == BigInteger.class || type == UUID.class
+                || value instanceof Enum<?> || type.getPackageName().equals("java.time");
+    }
+
+    private record LazySnapshot(@NotNull LazyColumn<?> column, @Nullable Object value) { }
+
+}
@@ -0,0 +1,111 @@
+package me.mrepiko.sopra.metadata;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import me.mrepiko.sopra.codec.TypeCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+@Getter
+public final class ColumnMetadata {
+
+    private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType OBJECT_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+    private final String fieldName;
+    private final String columnName;
+    private final Class<?> javaType;
+    private final String sqlType;
+    private final TypeCodec<?> codec;
+    private final boolean id;
+    private final boolean autoIncrement;
+    private final boolean unique;
+    private final boolean nullable;
+    // Stored in a LazyColumn, whose value is of the javaType.
+    private final boolean lazy;
+    @Nullable
+    private final String defaultValue;
+    @Nullable
+    private final String onUpdate;
+    // Typed (Object)F and (Object, F)void, F being the field type with references erased to Object, for invokeExact calls
+    // that neither box primitives nor adapt types per call.
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    // The same accessors typed (Object)Object and (Object, Object)void, and (Object, Object)void copying the field from
+    // the second entity to the first without boxing.
+    @Getter(AccessLevel.NONE)
+    private final MethodHandle objectGetter;
+    @Getter(AccessLevel.NONE)
+    private final MethodHandle objectSetter;
+    @Getter(AccessLevel.NONE)
+    private final MethodHandle copier;
+
+    ColumnMetadata(@NotNull Field field, @NotNull Class<?> javaType, @NotNull String columnName, @NotNull String sqlType, @NotNull TypeCodec<?> codec,
+                   boolean id, boolean autoIncrement, boolean unique, boolean nullable, boolean lazy, @Nullable String defaultValue,
+                   @Nullable String onUpdate, @NotNull MethodHandle getter, @NotNull MethodHandle setter) {
+        this.field = field;
+        this.fieldName = field.getName();
+        this.columnName = columnName;
+        this.javaType = javaType;
+        this.sqlType = sqlType;
+        this.codec = codec;
+        this.id = id;
+        this.autoIncrement = autoIncrement;
+        this.unique = unique;
+        this.nullable = nullable;
+        this.lazy = lazy;
+        this.defaultValue = defaultValue;
+        this.onUpdate = onUpdate;
+        this.getter = getter;
+        this.setter = setter;
+        this.objectGetter = getter.asType(OBJECT_GETTER);
+        this.objectSetter = setter.asType(OBJECT_SETTER);
+        this.copier = MethodHandles.filterArguments(setter, 1, getter);
+    }
+
+    @Nullable
+    public Object get(@NotNull Object entity) {
+        try {
+            return objectGetter.invokeExact(entity);
+        } catch (Throwable e) {
+            throw accessFailed(e);
+        }
+    }
+
+    public void set(@NotNull Object entity, @Nullable Object value) {
+        try {
+            objectSetter.invokeExact(entity, value);
+        } catch (Throwable e) {
+            throw accessFailed(e);
+        }
+    }
+
+    public void copy(@NotNull Object source, @NotNull Object target) {
+        try {
+            copier.invokeExact(target, source);
+        } catch (Throwable e) {
+            throw accessFailed(e);
+        }
+    }
+
+    // Field accessors only fail with unchecked exceptions, such as a ClassCastException for an entity of another type.
+    @NotNull
+    private static RuntimeException accessFailed(@NotNull Throwable e) {
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return (e instanceof RuntimeException runtimeException) ? runtimeException : new IllegalStateException(e);
+    }
+
+    @Override
+    public String toString() {
+        return columnName + " " + sqlType;
+    }
+
+}
@@ -0,0 +1,90 @@
+package me.mrepiko.sopra.metadata;
+
+import me.mrepiko.sopra.annotations.SopraTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public final class EntityIndex {
+
+    public static final String INDEX_LOCATION = "META-INF/sopra/entities.idx";
+
+    private final Map<Class<?>, Map<String, String>> columnNames;
+
+    private EntityIndex(@NotNull Map<Class<?>, Map<String, String>> columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    @NotNull
+    public Set<Class<?>> getClasses() {
+        return Collections.unmodifiableSet(columnNames.keySet());
+    }
+
+    @Nullable
+    public String getColumnName(@NotNull Class<?> clazz, @NotNull String fieldName) {
+        Map<String, String> columns = columnNames.get(clazz);
+        return (columns != null) ? columns.get(fieldName) : null;
+    }
+
+    @Nullable
+    public static EntityIndex load(@NotNull ClassLoader classLoader, @NotNull String packageName) {
+        Enumeration<URL> resources;
+        try {
+            resources = classLoader.getResources(INDEX_LOCATION);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to look up entity index", e);
+        }
+        if (!resources.hasMoreElements()) {
+            return null;
+        }
+
+        String prefix = packageName.isEmpty() ? "" : packageName + ".";
+        Map<Class<?>, Map<String, String>> columnNames = new LinkedHashMap<>();
+        while (resources.hasMoreElements()) {
+            URL url = resources.nextElement();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] parts = line.split("\t");
+                    if (!parts[0].startsWith(prefix)) {
+                        continue;
+                    }
+                    Class<?> clazz = loadClass(classLoader, parts[0]);
+                    if (clazz == null || !clazz.isAnnotationPresent(SopraTable.class)) {
+                        continue;
+                    }
+                    Map<String, String> columns = new HashMap<>();
+                    for (int i = 1; i < parts.length; i++) {
+                        int separator = parts[i].indexOf('=');
+                        if (separator > 0) {
+                            columns.put(parts[i].substring(0, separator), parts[i].substring(separator + 1));
+                        }
+                    }
+                    columnNames.put(clazz, columns);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read entity index: " + url, e);
+            }
+        }
+        return columnNames.isEmpty() ? null : new EntityIndex(columnNames);
+    }
+
+    @Nullable
+    private static Class<?> loadClass(@NotNull ClassLoader classLoader, @NotNull String className) {
+        try {
+            return Class.forName(className, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package me.mrepiko.sopra.metadata;
+
+import lombok.Getter;
+import me.mrepiko.sopra.codec.LargeObjectCodec;
+import me.mrepiko.sopra.codec.TypeCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+public final class EntityMetadata<T> {
+
+    private final Class<T> type;
+    private final String tableName;
+    private final String dataSourceId;
+    private final List<ColumnMetadata> columns;
+    @Nullable
+    private final ColumnMetadata idColumn;
+    private final List<String> primaryKeyColumns;
+    private final List<IndexMetadata> indexes;
+    private final List<GeneratedColumnMetadata> generatedColumns;
+    @Nullable
+    private final ColumnMetadata shardKeyColumn;
+    @Nullable
+    private final MethodHandle constructor;
+
+    private final Map<String, ColumnMetadata> columnsByField = new HashMap<>();
+    private final Map<String, ColumnMetadata> columnsByName = new HashMap<>();
+
+    EntityMetadata(@NotNull Class<T> type, @NotNull String tableName, @NotNull String dataSourceId, @NotNull List<ColumnMetadata> columns,
+                   @NotNull List<String> primaryKeyColumns, @NotNull List<IndexMetadata> indexes,
+                   @NotNull List<GeneratedColumnMetadata> generatedColumns, @Nullable ColumnMetadata shardKeyColumn, @Nullable MethodHandle constructor) {
+        this.type = type;
+        this.tableName = tableName;
+        this.dataSourceId = dataSourceId;
+        this.columns = List.copyOf(columns);
+        this.primaryKeyColumns = List.copyOf(primaryKeyColumns);
+        this.indexes = List.copyOf(indexes);
+        this.generatedColumns = List.copyOf(generatedColumns);
+        this.shardKeyColumn = shardKeyColumn;
+        this.constructor = constructor;
+
+        ColumnMetadata idColumn = null;
+        for (ColumnMetadata column : this.columns) {
+            columnsByField.put(column.getFieldName(), column);
+            columnsByName.put(column.getColumnName(), column);
+            if (column.isId() && idColumn == null) {
+                idColumn = column;
+            }
+        }
+        this.idColumn = idColumn;
+    }
+
+    @Nullable
+    public ColumnMetadata getColumnByField(@NotNull String fieldName) {
+        return columnsByField.get(fieldName);
+    }
+
+    @Nullable
+    public ColumnMetadata getColumnByName(@NotNull String columnName) {
+        return columnsByName.get(columnName);
+    }
+
+    @NotNull
+    public List<IndexMetadata> getUniqueConstraints() {
+        return indexes.stream().filter(IndexMetadata::unique).toList();
+    }
+
+    @NotNull
+    public ColumnMetadata requireIdColumn() {
+        if (idColumn == null) {
+            throw new IllegalStateException("Entity " + type.getName() + " has no field annotated with @Id");
+        }
+        return idColumn;
+    }
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public T newInstance() {
+        if (constructor == null) {
+            throw new IllegalStateException("Entity " + type.getName() + " has no no-args constructor");
+        }
+        try {
+            return (T) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to instantiate entity " + type.getName(), e);
+        }
+    }
+
+    // Copy of every column value through its codec, so mutable values such as byte arrays, collections and JSON objects are
+    // not shared. Lazy and large object columns are shared as they are: their holders and streams cannot be copied.
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public T copy(@NotNull T source) {
+        T copy = newInstance();
+        for (ColumnMetadata column : columns) {
+            if (column.getField().getType().isPrimitive() || column.isLazy() || column.getCodec() instanceof LargeObjectCodec<?>) {
+                column.copy(source, copy);
+            } else {
+                column.set(copy, ((TypeCodec<Object>) column.getCodec()).copy(column.get(source)));
+            }
+        }
+        return copy;
+    }
+
+    // findById(1) and findById(1L) must address the same row.
+    @NotNull
+    public static Object normalizeId(@NotNull Object id) {
+        if (id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte) {
+            return ((Number) id).longValue();
+        }
+        return id;
+    }
+
+}
@@ -0,0 +1,290 @@
+package me.mrepiko.sopra.metadata;
+
+import me.mrepiko.sopra.annotations.*;
+import me.mrepiko.sopra.codec.CodecRegistry;
+import me.mrepiko.sopra.codec.LazyColumn;
+import me.mrepiko.sopra.codec.TypeCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class EntityMetadataRegistry {
+
+    private static final int MAX_IDENTIFIER_LENGTH = 64;
+
+    private final Map<Class<?>, EntityMetadata<?>> metadata = new ConcurrentHashMap<>();
+    @Nullable
+    private final EntityIndex entityIndex;
+    private final CodecRegistry codecs;
+
+    public EntityMetadataRegistry(@Nullable EntityIndex entityIndex) {
+        this(entityIndex, new CodecRegistry());
+    }
+
+    public EntityMetadataRegistry(@Nullable EntityIndex entityIndex, @NotNull CodecRegistry codecs) {
+        this.entityIndex = entityIndex;
+        this.codecs = codecs;
+    }
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public <T> EntityMetadata<T> get(@NotNull Class<T> clazz) {
+        EntityMetadata<?> cached = metadata.get(clazz);
+        if (cached != null) {
+            return (EntityMetadata<T>) cached;
+        }
+        return (EntityMetadata<T>) metadata.computeIfAbsent(clazz, this::build);
+    }
+
+    @NotNull
+    private <T> EntityMetadata<T> build(@NotNull Class<T> clazz) {
+        SopraTable annotation = clazz.getAnnotation(SopraTable.class);
+        if (annotation == null) {
+            throw new IllegalArgumentException("Class " + clazz.getName() + " is not annotated with @SopraTable");
+        }
+        String tableName = annotation.name();
+        if (tableName.isEmpty()) {
+            tableName = clazz.getSimpleName().toLowerCase();
+        }
+
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access entity " + clazz.getName() + ", is its package open to Sopra?", e);
+        }
+
+        List<ColumnMetadata> columns = new ArrayList<>();
+        List<GeneratedColumnMetadata> generatedColumns = new ArrayList<>();
+        List<IndexMetadata> indexes = new ArrayList<>();
+        ColumnMetadata shardKeyColumn = null;
+        for (Field field : clazz.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || field.isAnnotationPresent(Transient.class)) {
+                continue;
+            }
+            Column column = field.getAnnotation(Column.class);
+            boolean id = field.isAnnotationPresent(Id.class);
+            Default defaultAnnotation = field.getAnnotation(Default.class);
+            OnUpdate onUpdate = field.getAnnotation(OnUpdate.class);
+
+            VarHandle handle;
+            try {
+                handle = lookup.unreflectVarHandle(field);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot access field " + field.getName() + " of " + clazz.getName(), e);
+            }
+            Class<?> erasedType = field.getType().isPrimitive() ? field.getType() : Object.class;
+            MethodHandle getter = handle.toMethodHandle(VarHandle.AccessMode.GET).asType(MethodType.methodType(erasedType, Object.class));
+            MethodHandle setter = handle.toMethodHandle(VarHandle.AccessMode.SET).asType(MethodType.methodType(void.class, Object.class, erasedType));
+
+            boolean lazy = field.isAnnotationPresent(Lazy.class);
+            Type valueType = lazy ? getLazyValueType(clazz, field) : field.getGenericType();
+            if (!lazy && field.getType() == LazyColumn.class) {
+                throw new IllegalStateException("Field " + field.getName() + " of " + clazz.getName() + " is a LazyColumn but not annotated with @Lazy");
+            }
+            if (lazy && (id || field.isAnnotationPresent(ShardKey.class))) {
+                throw new IllegalStateException("Field " + field.getName() + " of " + clazz.getName() + " is needed to load rows and cannot be @Lazy");
+            }
+
+            TypeCodec<?> codec = codecs.get(field, valueType);
+            ColumnMetadata columnMetadata = new ColumnMetadata(
+                    field,
+                    CodecRegistry.rawType(valueType),
+                    getColumnName(field, annotation, column),
+                    getSqlType(codec, field, column),
+                    codec,
+                    id,
+                    field.isAnnotationPresent(AutoIncrement.class),
+                    field.isAnnotationPresent(Unique.class),
+                    !id && (column == null || column.nullable()),
+                    lazy,
+                    (defaultAnnotation != null) ? defaultAnnotation.value() : null,
+                    (onUpdate != null) ? onUpdate.value() : null,
+                    getter,
+                    setter
+            );
+            columns.add(columnMetadata);
+            JsonPath[] jsonPaths = field.getAnnotationsByType(JsonPath.class);
+            if (jsonPaths.length > 0 && !columnMetadata.getSqlType().equalsIgnoreCase("JSON")) {
+                throw new IllegalStateException("Field " + field.getName() + " of " + clazz.getName() + " has @JsonPath but is not stored as JSON");
+            }
+            for (JsonPath jsonPath : jsonPaths) {
+                generatedColumns.add(new GeneratedColumnMetadata(
+                        jsonPath.column(),
+                        jsonPath.type(),
+                        "JSON_UNQUOTE(JSON_EXTRACT(" + columnMetadata.getColumnName() + ", '" + jsonPath.path().replace("'", "''") + "'))",
+                        jsonPath.indexed()
+                ));
+            }
+            for (Index index : field.getAnnotationsByType(Index.class)) {
+                String[] indexColumns = (index.columns().length > 0) ? index.columns() : new String[] {columnMetadata.getColumnName()};
+                indexes.add(toIndexMetadata(clazz, index, indexColumns));
+            }
+            if (field.isAnnotationPresent(ShardKey.class)) {
+                if (shardKeyColumn != null) {
+                    throw new IllegalStateException("Entity " + clazz.getName() + " has more than one field annotated with @ShardKey");
+                }
+                shardKeyColumn = columnMetadata;
+            }
+        }
+
+        for (UniqueConstraint uniqueConstraint : clazz.getAnnotationsByType(UniqueConstraint.class)) {
+            List<String> constraintColumns = Arrays.asList(uniqueConstraint.columns());
+            String name = uniqueConstraint.name().isEmpty() ? getIndexName("uq", constraintColumns) : uniqueConstraint.name();
+            indexes.add(new IndexMetadata(name, constraintColumns, Collections.nCopies(constraintColumns.size(), 0), true));
+        }
+        for (Index index : clazz.getAnnotationsByType(Index.class)) {
+            if (index.columns().length == 0) {
+                throw new IllegalStateException("@Index on " + clazz.getName() + " needs columns");
+            }
+            indexes.add(toIndexMetadata(clazz, index, index.columns()));
+        }
+        // @Unique is a unique index like any other, so migrations add it to existing tables too.
+        for (ColumnMetadata column : columns) {
+            List<String> uniqueColumns = List.of(column.getColumnName());
+            if (column.isUnique() && indexes.stream().noneMatch(index -> index.unique() && index.isFullLength() && index.columns().equals(uniqueColumns))) {
+                indexes.add(new IndexMetadata(getIndexName("uq", uniqueColumns), uniqueColumns, List.of(0), true));
+            }
+        }
+        validateIndexes(clazz, indexes, columns, generatedColumns);
+
+        PrimaryKey primaryKey = clazz.getAnnotation(PrimaryKey.class);
+        return new EntityMetadata<>(
+                clazz,
+                tableName,
+                annotation.dataSourceId(),
+                columns,
+                (primaryKey != null) ? Arrays.asList(primaryKey.columns()) : List.of(),
+                indexes,
+                generatedColumns,
+                shardKeyColumn,
+                findConstructor(lookup, clazz)
+        );
+    }
+
+    @NotNull
+    private static IndexMetadata toIndexMetadata(@NotNull Class<?> clazz, @NotNull Index index, @NotNull String[] keyColumns) {
+        if (index.lengths().length > 0 && index.lengths().length != keyColumns.length) {
+            throw new IllegalStateException("@Index on " + clazz.getName() + " has " + index.lengths().length
+                    + " lengths for " + keyColumns.length + " columns");
+        }
+        if (index.unique() && index.include().length > 0) {
+            throw new IllegalStateException("Unique @Index on " + clazz.getName() + " cannot include columns, they would become part of the unique key");
+        }
+        List<String> indexColumns = new ArrayList<>(Arrays.asList(keyColumns));
+        List<Integer> lengths = new ArrayList<>();
+        for (int i = 0; i < keyColumns.length; i++) {
+            lengths.add((index.lengths().length > 0) ? index.lengths()[i] : 0);
+        }
+        // MySQL has no INCLUDE clause, so covered columns become trailing key columns.
+        for (String included : index.include()) {
+            indexColumns.add(included);
+            lengths.add(0);
+        }
+        String name = index.name().isEmpty() ? getIndexName(index.unique() ? "uq" : "idx", indexColumns) : index.name();
+        return new IndexMetadata(name, indexColumns, lengths, index.unique());
+    }
+
+    private static void validateIndexes(@NotNull Class<?> clazz, @NotNull List<IndexMetadata> indexes,
+                                        @NotNull List<ColumnMetadata> columns, @NotNull List<GeneratedColumnMetadata> generatedColumns) {
+        Set<String> columnNames = new HashSet<>();
+        columns.forEach(column -> columnNames.add(column.getColumnName().toLowerCase(Locale.ROOT)));
+        generatedColumns.forEach(column -> columnNames.add(column.columnName().toLowerCase(Locale.ROOT)));
+        Set<String> names = new HashSet<>();
+        for (IndexMetadata index : indexes) {
+            for (String column : index.columns()) {
+                if (!columnNames.contains(column.toLowerCase(Locale.ROOT))) {
+                    throw new IllegalStateException("Index " + index.name() + " of " + clazz.getName() + " refers to unknown column " + column);
+                }
+            }
+            if (!names.add(index.name().toLowerCase(Locale.ROOT))) {
+                throw new IllegalStateException("Entity " + clazz.getName() + " has more than one index named " + index.name());
+            }
+        }
+    }
+
+    // Prefix and columns joined by underscores, shortened with a hash when it exceeds MySQL's 64 character limit.
+    @NotNull
+    private static String getIndexName(@NotNull String prefix, @NotNull List<String> columns) {
+        String name = prefix + "_" + String.join("_", columns);
+        if (name.length() <= MAX_IDENTIFIER_LENGTH) {
+            return name;
+        }
+        String hash = Integer.toHexString(name.hashCode());
+        return name.substring(0, MAX_IDENTIFIER_LENGTH - hash.length() - 1) + "_" + hash;
+    }
+
+    @NotNull
+    private static Type getLazyValueType(@NotNull Class<?> clazz, @NotNull Field field) {
+        if (field.getType() != LazyColumn.class) {
+            throw new IllegalStateException("Field " + field.getName() + " of " + clazz.getName() + " is annotated with @Lazy but is not a LazyColumn");
+        }
+        if (!(field.getGenericType() instanceof ParameterizedType parameterizedType)) {
+            throw new IllegalStateException("LazyColumn " + field.getName() + " of " + clazz.getName() + " needs a value type");
+        }
+        return parameterizedType.getActualTypeArguments()[0];
+    }
+
+    @Nullable
+    private static MethodHandle findConstructor(@NotNull MethodHandles.Lookup lookup, @NotNull Class<?> clazz) {
+        try {
+            return lookup.findConstructor(clazz, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    @NotNull
+    public String getColumnName(@NotNull Field field, @NotNull SopraTable annotation, @Nullable Column column) {
+        if (column != null && !column.name().isEmpty()) {
+            return column.name();
+        }
+        if (entityIndex != null) {
+            String indexedName = entityIndex.getColumnName(field.getDeclaringClass(), field.getName());
+            if (indexedName != null) {
+                return indexedName;
+            }
+        }
+        return annotation.snakeCase() ? toSnakeCase(field.getName()) : field.getName();
+    }
+
+    @NotNull
+    public String getSqlType(@NotNull Field field, @Nullable Column column) {
+        return getSqlType(codecs.get(field), field, column);
+    }
+
+    @NotNull
+    private static String getSqlType(@NotNull TypeCodec<?> codec, @NotNull Field field, @Nullable Column column) {
+        if (column != null && !column.type().isEmpty()) {
+            return column.type();
+        }
+        return codec.getSqlType(field, column);
+    }
+
+    // Equivalent to replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase() without compiling a pattern per call.
+    @NotNull
+    public static String toSnakeCase(@NotNull String name) {
+        StringBuilder builder = new StringBuilder(name.length() + 4);
+        char previous = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char current = name.charAt(i);
+            if (previous >= 'a' && previous <= 'z' && current >= 'A' && current <= 'Z') {
+                builder.append('_');
+            }
+            builder.append(Character.toLowerCase(current));
+            previous = current;
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,13 @@
+package me.mrepiko.sopra.metadata;
+
+import org.jetbrains.annotations.NotNull;
+
+// Virtual column computed by the server from a JSON field. It is never written and not mapped to a field.
+public record GeneratedColumnMetadata(@NotNull String columnName, @NotNull String sqlType, @NotNull String expression, boolean indexed) {
+
+    @NotNull
+    public String getIndexName() {
+        return "idx_" + columnName;
+    }
+
+}
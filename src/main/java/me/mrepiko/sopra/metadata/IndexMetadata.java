@@ -0,0 +1,20 @@
+package me.mrepiko.sopra.metadata;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+// Index from @Index, @UniqueConstraint or @Unique. lengths holds a prefix length per column, 0 for the whole value.
+public record IndexMetadata(@NotNull String name, @NotNull List<String> columns, @NotNull List<Integer> lengths, boolean unique) {
+
+    public IndexMetadata {
+        columns = List.copyOf(columns);
+        lengths = List.copyOf(lengths);
+    }
+
+    // Whether the index orders rows by the full values of its columns, rather than by prefixes.
+    public boolean isFullLength() {
+        return lengths.stream().allMatch(length -> length == 0);
+    }
+
+}
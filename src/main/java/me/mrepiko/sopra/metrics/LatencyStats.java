@@ -0,0 +1,14 @@
+package me.mrepiko.sopra.metrics;
+
+// Percentiles are upper bounds of histogram buckets, which are at most 25% wider than the values they hold.
+public record LatencyStats(long count, long errors, long totalNanos, long maxNanos, long p50Nanos, long p95Nanos, long p99Nanos) {
+
+    public double errorRate() {
+        return (count == 0) ? 0 : (double) errors / count;
+    }
+
+    public long meanNanos() {
+        return (count == 0) ? 0 : totalNanos / count;
+    }
+
+}
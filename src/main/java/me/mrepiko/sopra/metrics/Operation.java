@@ -0,0 +1,18 @@
+package me.mrepiko.sopra.metrics;
+
+public enum Operation {
+    INSERT,
+    INSERT_ALL,
+    UPSERT_ALL,
+    LOAD,
+    FIND_BY_ID,
+    FIND_BY_IDS,
+    FIND_ALL,
+    FIND_PAGE,
+    STREAM,
+    UPDATE,
+    UPDATE_ALL,
+    DELETE,
+    READ_CHUNK,
+    READ_COLUMN
+}
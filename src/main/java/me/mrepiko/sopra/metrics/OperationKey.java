@@ -0,0 +1,12 @@
+package me.mrepiko.sopra.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+public record OperationKey(@NotNull Class<?> entity, @NotNull Operation operation) {
+
+    @Override
+    public String toString() {
+        return entity.getSimpleName() + "." + operation;
+    }
+
+}
@@ -0,0 +1,3 @@
+package me.mrepiko.sopra.metrics;
+
+public record PoolStats(int active, int idle, int total, int pending) { }
@@ -0,0 +1,117 @@
+package me.mrepiko.sopra.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+// Latency, counts and errors of connection checkouts and repository operations, plus gauges of every connection pool.
+public final class SopraMetrics {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(SopraMetrics.class);
+    @Getter
+    private final boolean enabled;
+    private final long slowQueryNanos;
+    private final Map<String, HikariDataSource> dataSources;
+    private final Map<String, LatencyHistogram> acquisitions = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> dataSourceQueries = new ConcurrentHashMap<>();
+    private final Map<OperationKey, LatencyHistogram> operations = new ConcurrentHashMap<>();
+    private final Map<Class<?>, IntSupplier> writeBehindDepths = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LatencyHistogram> flushLags = new ConcurrentHashMap<>();
+
+    public SopraMetrics(boolean enabled, @Nullable Duration slowQueryThreshold, @NotNull Map<String, HikariDataSource> dataSources) {
+        this.enabled = enabled;
+        this.slowQueryNanos = (slowQueryThreshold != null && !slowQueryThreshold.isZero()) ? slowQueryThreshold.toNanos() : Long.MAX_VALUE;
+        this.dataSources = new HashMap<>(dataSources);
+    }
+
+    public void recordAcquisition(@NotNull String dataSourceId, long nanos, boolean failed) {
+        if (enabled) {
+            histogram(acquisitions, dataSourceId).record(nanos, failed);
+        }
+    }
+
+    public void recordQuery(@NotNull String dataSourceId, @NotNull Class<?> entity, @NotNull Operation operation,
+                            @NotNull String sql, long nanos, boolean failed) {
+        if (nanos >= slowQueryNanos) {
+            LOGGER.warn("Slow {} of {} on data source {} took {} ms: {}", operation, entity.getSimpleName(), dataSourceId, nanos / 1_000_000, sql);
+        }
+        if (enabled) {
+            histogram(dataSourceQueries, dataSourceId).record(nanos, failed);
+            histogram(operations, new OperationKey(entity, operation)).record(nanos, failed);
+        }
+    }
+
+    public void registerWriteBehind(@NotNull Class<?> entity, @NotNull IntSupplier pending) {
+        writeBehindDepths.put(entity, pending);
+    }
+
+    public void recordFlushLag(@NotNull Class<?> entity, long nanos, boolean failed) {
+        if (enabled) {
+            histogram(flushLags, entity).record(nanos, failed);
+        }
+    }
+
+    // Time spent waiting for a pooled connection, per data source.
+    @NotNull
+    public Map<String, LatencyStats> getAcquisitionStats() {
+        return snapshot(acquisitions);
+    }
+
+    // Latency of all repository operations, including connection checkout, per data source.
+    @NotNull
+    public Map<String, LatencyStats> getDataSourceStats() {
+        return snapshot(dataSourceQueries);
+    }
+
+    @NotNull
+    public Map<OperationKey, LatencyStats> getOperationStats() {
+        return snapshot(operations);
+    }
+
+    @NotNull
+    public Map<String, PoolStats> getPoolStats() {
+        Map<String, PoolStats> stats = new HashMap<>();
+        for (Map.Entry<String, HikariDataSource> entry : dataSources.entrySet()) {
+            HikariPoolMXBean pool = entry.getValue().getHikariPoolMXBean();
+            if (pool != null) {
+                stats.put(entry.getKey(), new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(),
+                        pool.getTotalConnections(), pool.getThreadsAwaitingConnection()));
+            }
+        }
+        return stats;
+    }
+
+    @NotNull
+    public Map<Class<?>, WriteBehindStats> getWriteBehindStats() {
+        Map<Class<?>, WriteBehindStats> stats = new HashMap<>();
+        writeBehindDepths.forEach((entity, pending) -> {
+            LatencyHistogram flushLag = flushLags.get(entity);
+            stats.put(entity, new WriteBehindStats(pending.getAsInt(), (flushLag != null) ? flushLag.snapshot() : new LatencyHistogram().snapshot()));
+        });
+        return stats;
+    }
+
+    @NotNull
+    private static <K> LatencyHistogram histogram(@NotNull Map<K, LatencyHistogram> histograms, @NotNull K key) {
+        LatencyHistogram histogram = histograms.get(key);
+        return (histogram != null) ? histogram : histograms.computeIfAbsent(key, x -> new LatencyHistogram());
+    }
+
+    @NotNull
+    private static <K> Map<K, LatencyStats> snapshot(@NotNull Map<K, LatencyHistogram> histograms) {
+        Map<K, LatencyStats> stats = new HashMap<>();
+        histograms.forEach((key, histogram) -> stats.put(key, histogram.snapshot()));
+        return stats;
+    }
+
+}
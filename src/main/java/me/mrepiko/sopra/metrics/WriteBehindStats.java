@@ -0,0 +1,6 @@
+package me.mrepiko.sopra.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+// Rows waiting to be written, and how long written rows waited since their first buffered update.
+public record WriteBehindStats(int pending, @NotNull LatencyStats flushLag) { }
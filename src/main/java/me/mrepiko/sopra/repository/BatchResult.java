@@ -0,0 +1,45 @@
+package me.mrepiko.sopra.repository;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public record BatchResult(@NotNull List<Chunk> chunks) {
+
+    public BatchResult {
+        chunks = List.copyOf(chunks);
+    }
+
+    public int rows() {
+        int rows = 0;
+        for (Chunk chunk : chunks) {
+            rows += chunk.rows();
+        }
+        return rows;
+    }
+
+    public long affectedRows() {
+        long affectedRows = 0;
+        for (Chunk chunk : chunks) {
+            affectedRows += chunk.affectedRows();
+        }
+        return affectedRows;
+    }
+
+    public long elapsedNanos() {
+        long elapsedNanos = 0;
+        for (Chunk chunk : chunks) {
+            elapsedNanos += chunk.elapsedNanos();
+        }
+        return elapsedNanos;
+    }
+
+    public double rowsPerSecond() {
+        long elapsedNanos = elapsedNanos();
+        return (elapsedNanos == 0) ? 0 : rows() / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public record Chunk(int rows, long estimatedBytes, long affectedRows, long elapsedNanos) { }
+
+}
@@ -0,0 +1,206 @@
+package me.mrepiko.sopra.repository;
+
+import com.mysql.cj.jdbc.exceptions.PacketTooBigException;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.IndexMetadata;
+import me.mrepiko.sopra.metrics.Operation;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class BatchWriter<T> {
+
+    private static final int MAX_PLACEHOLDERS = 65_535;
+    private static final long DEFAULT_MAX_ALLOWED_PACKET = 4L * 1024 * 1024;
+    // Leaves room for protocol overhead and underestimated values.
+    private static final double PACKET_USAGE = 0.75;
+
+    private final Logger LOGGER = LoggerFactory.getLogger(BatchWriter.class);
+    private final SopraRepository<T> repository;
+    private final EntityMetadata<T> metadata;
+    private final Set<String> keyColumns = new HashSet<>();
+    private final Map<String, Long> maxAllowedPackets = new ConcurrentHashMap<>();
+
+    BatchWriter(@NotNull SopraRepository<T> repository, @NotNull EntityMetadata<T> metadata) {
+        this.repository = repository;
+        this.metadata = metadata;
+        for (ColumnMetadata column : metadata.getColumns()) {
+            if (column.isId()) {
+                keyColumns.add(column.getColumnName());
+            }
+        }
+        keyColumns.addAll(metadata.getPrimaryKeyColumns());
+        for (IndexMetadata uniqueConstraint : metadata.getUniqueConstraints()) {
+            keyColumns.addAll(uniqueConstraint.columns());
+        }
+    }
+
+    @NotNull
+    BatchResult write(@NotNull Collection<T> entities, boolean upsert) {
+        if (entities.isEmpty()) {
+            return new BatchResult(List.of());
+        }
+        // Sharded entities are written to their own shard, each with its own statements.
+        Map<String, List<T>> shards = new LinkedHashMap<>();
+        for (T entity : entities) {
+            shards.computeIfAbsent(repository.getDataSourceId(entity), x -> new ArrayList<>()).add(entity);
+        }
+        List<BatchResult.Chunk> chunks = new ArrayList<>();
+        for (Map.Entry<String, List<T>> shard : shards.entrySet()) {
+            write(shard.getKey(), shard.getValue(), upsert, chunks);
+        }
+        return new BatchResult(chunks);
+    }
+
+    private void write(@NotNull String dataSourceId, @NotNull List<T> entities, boolean upsert, @NotNull List<BatchResult.Chunk> chunks) {
+        // Entities with different unset default columns need different column lists.
+        Map<Long, List<T>> groups = new LinkedHashMap<>();
+        for (T entity : entities) {
+            groups.computeIfAbsent(repository.getOmittedColumns(entity), x -> new ArrayList<>()).add(entity);
+        }
+
+        try (Connection connection = repository.getConnection(dataSourceId)) {
+            long budget = (long) (getMaxAllowedPacket(dataSourceId, connection) * PACKET_USAGE);
+            for (Map.Entry<Long, List<T>> group : groups.entrySet()) {
+                SopraRepository.InsertStatement insert = repository.getInsertStatement(group.getKey());
+                String suffix = upsert ? buildUpsertClause(insert) : "";
+                writeGroup(dataSourceId, connection, insert, suffix, group.getValue(), budget, upsert, chunks);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to " + (upsert ? "upsert into " : "insert into ") + metadata.getTableName(), e);
+        }
+    }
+
+    private void writeGroup(@NotNull String dataSourceId, @NotNull Connection connection, @NotNull SopraRepository.InsertStatement insert, @NotNull String suffix,
+                            @NotNull List<T> entities, long budget, boolean upsert, @NotNull List<BatchResult.Chunk> chunks) throws SQLException {
+        ColumnMapper[] mappers = insert.mappers();
+        // Rows with large objects are sent one at a time so the driver can stream them.
+        int maxRows = repository.hasLargeObjects() ? 1 : Math.max(1, MAX_PLACEHOLDERS / Math.max(1, mappers.length));
+        long fixedSize = insert.prefix().length() + suffix.length();
+
+        int start = 0;
+        while (start < entities.size()) {
+            int end = start;
+            long size = fixedSize;
+            while (end < entities.size() && end - start < maxRows) {
+                long rowSize = estimateRowSize(mappers, entities.get(end));
+                if (end > start && size + rowSize > budget) {
+                    break;
+                }
+                size += rowSize;
+                end++;
+            }
+            writeChunk(dataSourceId, connection, insert, suffix, entities.subList(start, end), size, upsert, chunks);
+            start = end;
+        }
+    }
+
+    private void writeChunk(@NotNull String dataSourceId, @NotNull Connection connection, @NotNull SopraRepository.InsertStatement insert, @NotNull String suffix,
+                            @NotNull List<T> rows, long estimatedBytes, boolean upsert, @NotNull List<BatchResult.Chunk> chunks) throws SQLException {
+        StringBuilder sql = new StringBuilder(insert.prefix().length() + rows.size() * (insert.placeholders().length() + 2) + suffix.length());
+        sql.append(insert.prefix());
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(insert.placeholders());
+        }
+        sql.append(suffix);
+
+        // Keys of rows that were updated instead of inserted are not reported reliably, so upserts leave ids untouched.
+        ColumnMapper generatedKey = upsert ? null : insert.generatedKey();
+        Operation operation = upsert ? Operation.UPSERT_ALL : Operation.INSERT_ALL;
+        long start = System.nanoTime();
+        try (PreparedStatement statement = repository.prepareWrite(connection, sql.toString(), generatedKey != null)) {
+            int offset = 0;
+            for (T entity : rows) {
+                insert.bind(statement, offset, entity);
+                offset += insert.mappers().length;
+            }
+            long affectedRows = statement.executeLargeUpdate();
+            if (generatedKey != null) {
+                readGeneratedKeys(statement, generatedKey, rows);
+            }
+            chunks.add(new BatchResult.Chunk(rows.size(), estimatedBytes, affectedRows, System.nanoTime() - start));
+            repository.record(dataSourceId, operation, insert.prefix(), start, false);
+        } catch (PacketTooBigException e) {
+            if (rows.size() == 1) {
+                repository.record(dataSourceId, operation, insert.prefix(), start, true);
+                throw e;
+            }
+            LOGGER.debug("Chunk of {} rows for {} exceeded max_allowed_packet, splitting", rows.size(), metadata.getTableName());
+            int middle = rows.size() / 2;
+            writeChunk(dataSourceId, connection, insert, suffix, rows.subList(0, middle), estimatedBytes / 2, upsert, chunks);
+            writeChunk(dataSourceId, connection, insert, suffix, rows.subList(middle, rows.size()), estimatedBytes / 2, upsert, chunks);
+        } catch (SQLException e) {
+            repository.record(dataSourceId, operation, insert.prefix(), start, true);
+            throw e;
+        }
+    }
+
+    private void readGeneratedKeys(@NotNull PreparedStatement statement, @NotNull ColumnMapper generatedKey, @NotNull List<T> rows) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            for (T entity : rows) {
+                if (!keys.next()) {
+                    break;
+                }
+                generatedKey.read(keys, 1, entity);
+            }
+        }
+    }
+
+    @NotNull
+    private String buildUpsertClause(@NotNull SopraRepository.InsertStatement insert) {
+        StringJoiner joiner = new StringJoiner(", ", " ON DUPLICATE KEY UPDATE ", "");
+        boolean updatesColumns = false;
+        for (ColumnMapper mapper : insert.mappers()) {
+            ColumnMetadata column = mapper.getColumn();
+            if (keyColumns.contains(column.getColumnName()) || column.getOnUpdate() != null) {
+                continue;
+            }
+            joiner.add(column.getColumnName() + " = VALUES(" + column.getColumnName() + ")");
+            updatesColumns = true;
+        }
+        if (!updatesColumns) {
+            // Every written column is a key, so a duplicate only needs to be ignored.
+            String column = insert.mappers()[0].getColumn().getColumnName();
+            joiner.add(column + " = " + column);
+        }
+        return joiner.toString();
+    }
+
+    private static long estimateRowSize(@NotNull ColumnMapper[] mappers, @NotNull Object entity) {
+        long size = 4;
+        for (ColumnMapper mapper : mappers) {
+            size += mapper.estimateSize(entity) + 2;
+        }
+        return size;
+    }
+
+    private long getMaxAllowedPacket(@NotNull String dataSourceId, @NotNull Connection connection) {
+        Long cached = maxAllowedPackets.get(dataSourceId);
+        if (cached != null) {
+            return cached;
+        }
+        long maxAllowedPacket;
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT @@max_allowed_packet")) {
+            maxAllowedPacket = resultSet.next() ? resultSet.getLong(1) : DEFAULT_MAX_ALLOWED_PACKET;
+        } catch (SQLException e) {
+            LOGGER.debug("Failed to read max_allowed_packet, assuming {} bytes", DEFAULT_MAX_ALLOWED_PACKET, e);
+            maxAllowedPacket = DEFAULT_MAX_ALLOWED_PACKET;
+        }
+        maxAllowedPackets.put(dataSourceId, maxAllowedPacket);
+        return maxAllowedPacket;
+    }
+
+}
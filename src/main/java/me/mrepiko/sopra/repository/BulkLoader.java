@@ -0,0 +1,425 @@
+package me.mrepiko.sopra.repository;
+
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.jdbc.JdbcConnection;
+import com.mysql.cj.jdbc.JdbcStatement;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metrics.Operation;
+import me.mrepiko.sopra.schema.SqlTypes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+// Streams entities into a table with LOAD DATA LOCAL INFILE. A producer thread encodes rows in the server's default text
+// format (tab separated, backslash escapes, \N for NULL) into blocks, which the loading thread hands to the driver as the
+// statement's input stream. Every chunk of about chunkBytes is one statement and one transaction.
+final class BulkLoader<T> {
+
+    static final long DEFAULT_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final int BLOCK_SIZE = 256 * 1024;
+    // Blocks the producer may encode ahead of the server, which bounds the memory a load takes.
+    private static final int MAX_QUEUED_BLOCKS = 16;
+    private static final Object END = new Object();
+
+    private final Logger LOGGER = LoggerFactory.getLogger(BulkLoader.class);
+    private final SopraRepository<T> repository;
+    private final EntityMetadata<T> metadata;
+    private final ColumnMapper[] mappers;
+    private final String sql;
+
+    BulkLoader(@NotNull SopraRepository<T> repository, @NotNull EntityMetadata<T> metadata) {
+        this.repository = repository;
+        this.metadata = metadata;
+        this.mappers = repository.getInsertStatement(0).mappers();
+        StringJoiner targets = new StringJoiner(", ", " (", ")");
+        StringJoiner assignments = new StringJoiner(", ", " SET ", "");
+        assignments.setEmptyValue("");
+        for (int i = 0; i < mappers.length; i++) {
+            ColumnMetadata column = mappers[i].getColumn();
+            String placeholder = mappers[i].getPlaceholder();
+            // The data is read as binary, so text is converted from UTF-8 into the column's character set explicitly.
+            if (placeholder.equals("?") && SqlTypes.isCharacterType(column.getSqlType())) {
+                placeholder = "CONVERT(? USING utf8mb4)";
+            }
+            if (placeholder.equals("?") && column.getDefaultValue() == null) {
+                targets.add(column.getColumnName());
+                continue;
+            }
+            // Read into a variable and written through the codec's placeholder, with the default where an INSERT would leave the column out.
+            String variable = "@c" + i;
+            String expression = placeholder.replace("?", variable);
+            if (column.getDefaultValue() != null) {
+                expression = "COALESCE(" + expression + ", " + column.getDefaultValue() + ")";
+            }
+            targets.add(variable);
+            assignments.add(column.getColumnName() + " = " + expression);
+        }
+        // Byte arrays must reach their columns unchanged, so the server reads the data as binary.
+        this.sql = "LOAD DATA LOCAL INFILE 'sopra-bulk-load' INTO TABLE " + metadata.getTableName() + " CHARACTER SET binary" + targets + assignments;
+    }
+
+    @NotNull
+    BatchResult load(@NotNull Iterator<? extends T> entities, long chunkBytes, @Nullable Consumer<LoadProgress> progress) {
+        String dataSourceId = metadata.getDataSourceId();
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(MAX_QUEUED_BLOCKS);
+        List<BatchResult.Chunk> chunks = new ArrayList<>();
+        long start = System.nanoTime();
+        long rows = 0;
+        long bytes = 0;
+        try (Connection connection = repository.getConnection(dataSourceId);
+             Statement statement = connection.createStatement()) {
+            JdbcStatement jdbcStatement = requireLocalInfile(dataSourceId, connection, statement);
+            // The pool restores auto-commit when the connection is returned.
+            connection.setAutoCommit(false);
+            Thread producer = Thread.ofVirtual().name("sopra-bulk-load-" + metadata.getTableName()).start(() -> produce(entities, chunkBytes, queue));
+            try {
+                Object next;
+                while ((next = take(queue)) != END) {
+                    BatchResult.Chunk chunk = loadChunk(dataSourceId, connection, statement, jdbcStatement, new ChunkStream(queue, next));
+                    chunks.add(chunk);
+                    rows += chunk.rows();
+                    bytes += chunk.estimatedBytes();
+                    if (progress != null) {
+                        progress.accept(new LoadProgress(rows, bytes, chunks.size(), System.nanoTime() - start));
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                rollbackQuietly(connection);
+                throw e;
+            } finally {
+                // Stops the producer when loading failed; it has already finished otherwise.
+                producer.interrupt();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load rows into " + metadata.getTableName(), e);
+        }
+        LOGGER.debug("Loaded {} rows ({} bytes) into {} in {} ms", rows, bytes, metadata.getTableName(), (System.nanoTime() - start) / 1_000_000);
+        return new BatchResult(chunks);
+    }
+
+    @NotNull
+    private BatchResult.Chunk loadChunk(@NotNull String dataSourceId, @NotNull Connection connection, @NotNull Statement statement,
+                                        @NotNull JdbcStatement jdbcStatement, @NotNull ChunkStream stream) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            jdbcStatement.setLocalInfileInputStream(stream);
+            long affectedRows = statement.executeLargeUpdate(sql);
+            if (stream.failure != null) {
+                throw stream.failure;
+            }
+            ChunkEnd end = stream.end;
+            if (end == null) {
+                throw new IllegalStateException("Driver stopped reading a chunk of " + metadata.getTableName() + " before its end");
+            }
+            // LOCAL loads turn errors such as duplicate keys into warnings and skip the row, so they are at least logged.
+            SQLWarning warning = statement.getWarnings();
+            if (warning != null) {
+                LOGGER.warn("Loaded {} of {} rows into {} with warnings, the first being: {}", affectedRows, end.rows(), metadata.getTableName(), warning.getMessage());
+                statement.clearWarnings();
+            }
+            connection.commit();
+            repository.record(dataSourceId, Operation.LOAD, sql, start, false);
+            return new BatchResult.Chunk(end.rows(), end.bytes(), affectedRows, System.nanoTime() - start);
+        } catch (SQLException | RuntimeException e) {
+            repository.record(dataSourceId, Operation.LOAD, sql, start, true);
+            throw e;
+        }
+    }
+
+    private void produce(@NotNull Iterator<? extends T> entities, long chunkBytes, @NotNull BlockingQueue<Object> queue) {
+        try {
+            RowEncoder encoder = new RowEncoder();
+            int chunkRows = 0;
+            long chunkSize = 0;
+            while (entities.hasNext()) {
+                chunkSize += encoder.write(entities.next());
+                chunkRows++;
+                if (chunkSize >= chunkBytes) {
+                    queue.put(encoder.drain());
+                    queue.put(new ChunkEnd(chunkRows, chunkSize));
+                    chunkRows = 0;
+                    chunkSize = 0;
+                } else if (encoder.size >= BLOCK_SIZE) {
+                    queue.put(encoder.drain());
+                }
+            }
+            if (chunkRows > 0) {
+                queue.put(encoder.drain());
+                queue.put(new ChunkEnd(chunkRows, chunkSize));
+            }
+            queue.put(END);
+        } catch (InterruptedException e) {
+            // Loading failed and nothing reads the queue anymore.
+        } catch (SQLException | IOException | RuntimeException e) {
+            RuntimeException failure = (e instanceof RuntimeException runtimeException)
+                    ? runtimeException
+                    : new RuntimeException("Failed to encode a row of " + metadata.getTableName(), e);
+            try {
+                queue.put(new Failure(failure));
+            } catch (InterruptedException ignored) {
+                // Loading already failed on its own.
+            }
+        }
+    }
+
+    @NotNull
+    private JdbcStatement requireLocalInfile(@NotNull String dataSourceId, @NotNull Connection connection, @NotNull Statement statement) throws SQLException {
+        if (!connection.isWrapperFor(JdbcConnection.class) || !statement.isWrapperFor(JdbcStatement.class)) {
+            throw new IllegalStateException("Bulk loading into " + metadata.getTableName() + " needs MySQL Connector/J on data source " + dataSourceId);
+        }
+        boolean allowed = connection.unwrap(JdbcConnection.class).getPropertySet().getBooleanProperty(PropertyKey.allowLoadLocalInfile).getValue();
+        if (!allowed) {
+            throw new IllegalStateException("Bulk loading into " + metadata.getTableName() + " needs allowLoadLocalInfile on data source "
+                    + dataSourceId + ", see SopraApi.Builder#setBulkLoadEnabled");
+        }
+        return statement.unwrap(JdbcStatement.class);
+    }
+
+    @NotNull
+    private Object take(@NotNull BlockingQueue<Object> queue) {
+        Object next;
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading rows into " + metadata.getTableName(), e);
+        }
+        if (next instanceof Failure failure) {
+            throw failure.error();
+        }
+        return next;
+    }
+
+    private static void rollbackQuietly(@NotNull Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // Already failing with the original exception.
+        }
+    }
+
+    // Input of one statement: the queued blocks up to the end of the chunk. A failed producer ends the stream early rather
+    // than failing it, which the driver could only handle by dropping the connection; the rows sent are rolled back.
+    private static final class ChunkStream extends InputStream {
+
+        private final BlockingQueue<Object> queue;
+        private byte[] block;
+        private int position;
+        @Nullable
+        private ChunkEnd end;
+        @Nullable
+        private RuntimeException failure;
+
+        private ChunkStream(@NotNull BlockingQueue<Object> queue, @NotNull Object first) {
+            this.queue = queue;
+            this.block = (byte[]) first;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return (read(single, 0, 1) == -1) ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte @NotNull [] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == block.length) {
+                if (end != null || failure != null) {
+                    return -1;
+                }
+                Object next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for encoded rows");
+                }
+                if (next instanceof byte[] bytes) {
+                    block = bytes;
+                    position = 0;
+                } else if (next instanceof ChunkEnd chunkEnd) {
+                    end = chunkEnd;
+                } else {
+                    failure = ((Failure) next).error();
+                    return -1;
+                }
+            }
+            int count = Math.min(length, block.length - position);
+            System.arraycopy(block, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+    }
+
+    // Encodes rows from the values the mappers bind, so every column is converted by the same codec as in an INSERT.
+    private final class RowEncoder implements InvocationHandler {
+
+        private final Object[] values = new Object[mappers.length];
+        private final PreparedStatement capture = (PreparedStatement) Proxy.newProxyInstance(
+                BulkLoader.class.getClassLoader(), new Class<?>[] {PreparedStatement.class}, this);
+        private byte[] buffer = new byte[BLOCK_SIZE + BLOCK_SIZE / 4];
+        private int size;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                values[index - 1] = name.equals("setNull") ? null : args[1];
+                return null;
+            }
+            throw new UnsupportedOperationException("Codecs cannot call " + name + " while bulk loading " + metadata.getTableName());
+        }
+
+        // Appends the row and returns its size in bytes.
+        int write(@NotNull T entity) throws SQLException, IOException {
+            int start = size;
+            for (int i = 0; i < mappers.length; i++) {
+                mappers[i].bind(capture, i + 1, entity);
+            }
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    append((byte) '\t');
+                }
+                writeValue(i, values[i]);
+                values[i] = null;
+            }
+            append((byte) '\n');
+            return size - start;
+        }
+
+        @NotNull
+        byte[] drain() {
+            byte[] block = Arrays.copyOf(buffer, size);
+            size = 0;
+            return block;
+        }
+
+        private void writeValue(int index, @Nullable Object value) throws IOException {
+            switch (value) {
+                case null -> {
+                    append((byte) '\\');
+                    append((byte) 'N');
+                }
+                case byte[] bytes -> writeEscaped(bytes, bytes.length);
+                case String string -> {
+                    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                    writeEscaped(bytes, bytes.length);
+                }
+                case Boolean bool -> append(bool ? (byte) '1' : (byte) '0');
+                case BigDecimal decimal -> writeAscii(decimal.toPlainString());
+                case Number number -> writeAscii(number.toString());
+                case Timestamp timestamp -> writeAscii(timestamp.toString());
+                case java.sql.Date date -> writeAscii(date.toString());
+                case Time time -> writeAscii(time.toString());
+                case LocalDateTime dateTime -> writeAscii(dateTime.toString());
+                case LocalDate date -> writeAscii(date.toString());
+                case LocalTime time -> writeAscii(time.toString());
+                case InputStream stream -> {
+                    try (stream) {
+                        byte[] chunk = new byte[8192];
+                        int read;
+                        while ((read = stream.read(chunk)) != -1) {
+                            writeEscaped(chunk, read);
+                        }
+                    }
+                }
+                case Reader reader -> {
+                    StringBuilder builder = new StringBuilder();
+                    try (reader) {
+                        char[] chunk = new char[8192];
+                        int read;
+                        while ((read = reader.read(chunk)) != -1) {
+                            builder.append(chunk, 0, read);
+                        }
+                    }
+                    byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+                    writeEscaped(bytes, bytes.length);
+                }
+                default -> throw new IllegalArgumentException("Cannot bulk load " + value.getClass().getName() + " bound for column "
+                        + mappers[index].getColumn().getColumnName() + " of " + metadata.getTableName());
+            }
+        }
+
+        // UTF-8 continuation bytes are never below 0x80, so escaping byte by byte is safe for text as well.
+        private void writeEscaped(byte @NotNull [] bytes, int length) {
+            ensureCapacity(length * 2);
+            byte[] buffer = this.buffer;
+            int size = this.size;
+            for (int i = 0; i < length; i++) {
+                byte value = bytes[i];
+                switch (value) {
+                    case '\\' -> {
+                        buffer[size++] = '\\';
+                        buffer[size++] = '\\';
+                    }
+                    case '\t' -> {
+                        buffer[size++] = '\\';
+                        buffer[size++] = 't';
+                    }
+                    case '\n' -> {
+                        buffer[size++] = '\\';
+                        buffer[size++] = 'n';
+                    }
+                    case '\r' -> {
+                        buffer[size++] = '\\';
+                        buffer[size++] = 'r';
+                    }
+                    case 0 -> {
+                        buffer[size++] = '\\';
+                        buffer[size++] = '0';
+                    }
+                    default -> buffer[size++] = value;
+                }
+            }
+            this.size = size;
+        }
+
+        private void writeAscii(@NotNull String value) {
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buffer[size++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void append(byte value) {
+            ensureCapacity(1);
+            buffer[size++] = value;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+
+    }
+
+    private record ChunkEnd(int rows, long bytes) { }
+
+    private record Failure(@NotNull RuntimeException error) { }
+
+}
@@ -0,0 +1,110 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+
+// Reads a large object one SUBSTRING query at a time, so at most one chunk is held in memory however big the value is.
+// Chunks are separate queries: a concurrent update of the row can mix old and new bytes.
+final class ChunkedBlobInputStream<T> extends InputStream {
+
+    private final SopraRepository<T> repository;
+    private final String dataSourceId;
+    private final Object id;
+    private final ColumnMetadata column;
+    private final long length;
+    private long position;
+    private byte[] chunk = new byte[0];
+    private int chunkPosition;
+    private boolean closed;
+
+    ChunkedBlobInputStream(@NotNull SopraRepository<T> repository, @NotNull String dataSourceId, @NotNull Object id,
+                           @NotNull ColumnMetadata column, long length) {
+        this.repository = repository;
+        this.dataSourceId = dataSourceId;
+        this.id = id;
+        this.column = column;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk[chunkPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte @NotNull [] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int read = Math.min(length, chunk.length - chunkPosition);
+        System.arraycopy(chunk, chunkPosition, bytes, offset, read);
+        chunkPosition += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || closed) {
+            return 0;
+        }
+        long buffered = chunk.length - chunkPosition;
+        if (n <= buffered) {
+            chunkPosition += (int) n;
+            return n;
+        }
+        long skipped = Math.min(n, buffered + length - position);
+        position += skipped - buffered;
+        chunk = new byte[0];
+        chunkPosition = 0;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return closed ? 0 : chunk.length - chunkPosition;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        chunk = new byte[0];
+        chunkPosition = 0;
+    }
+
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (chunkPosition < chunk.length) {
+            return true;
+        }
+        if (position >= length) {
+            return false;
+        }
+        int size = (int) Math.min(SopraRepository.LARGE_OBJECT_CHUNK_SIZE, length - position);
+        try {
+            chunk = repository.readChunk(dataSourceId, id, column, position + 1, size);
+        } catch (SQLException e) {
+            throw new IOException("Failed to read " + column.getColumnName() + " at offset " + position, e);
+        }
+        chunkPosition = 0;
+        if (chunk.length == 0) {
+            // The value shrank since its length was read.
+            position = length;
+            return false;
+        }
+        position += chunk.length;
+        return true;
+    }
+
+}
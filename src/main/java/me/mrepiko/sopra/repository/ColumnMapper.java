@@ -0,0 +1,173 @@
+package me.mrepiko.sopra.repository;
+
+import lombok.Getter;
+import me.mrepiko.sopra.codec.TypeCodec;
+import me.mrepiko.sopra.codec.TypeCodecs;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+
+// Binds and reads one column of an entity. Primitive fields with a built-in codec skip the codec: their accessors are
+// composed with the matching PreparedStatement setter and ResultSet getter, so binding and reading them neither boxes
+// nor allocates.
+@Getter
+public abstract class ColumnMapper {
+
+    private static final Map<Class<?>, Primitive> PRIMITIVES = Map.of(
+            int.class, Primitive.of(int.class, "Int", 11),
+            long.class, Primitive.of(long.class, "Long", 20),
+            double.class, Primitive.of(double.class, "Double", 24),
+            boolean.class, Primitive.of(boolean.class, "Boolean", 1),
+            float.class, Primitive.of(float.class, "Float", 15),
+            short.class, Primitive.of(short.class, "Short", 6),
+            byte.class, Primitive.of(byte.class, "Byte", 4)
+    );
+
+    protected final ColumnMetadata column;
+
+    protected ColumnMapper(@NotNull ColumnMetadata column) {
+        this.column = column;
+    }
+
+    @NotNull
+    public String getPlaceholder() {
+        return column.getCodec().getPlaceholder();
+    }
+
+    public abstract void bindValue(@NotNull PreparedStatement statement, int index, @Nullable Object value) throws SQLException;
+
+    @Nullable
+    public abstract Object readValue(@NotNull ResultSet resultSet, int index) throws SQLException;
+
+    public void bind(@NotNull PreparedStatement statement, int index, @NotNull Object entity) throws SQLException {
+        bindValue(statement, index, column.get(entity));
+    }
+
+    public void read(@NotNull ResultSet resultSet, int index, @NotNull Object entity) throws SQLException {
+        column.set(entity, readValue(resultSet, index));
+    }
+
+    // Rough number of bytes the entity's value takes up in a client-side statement, used to size batches.
+    public abstract int estimateSize(@NotNull Object entity);
+
+    @NotNull
+    public static ColumnMapper of(@NotNull ColumnMetadata column) {
+        if (TypeCodecs.isUnboxed(column.getCodec())) {
+            Primitive primitive = PRIMITIVES.get(column.getField().getType());
+            if (primitive != null) {
+                return new PrimitiveMapper(column, primitive);
+            }
+        }
+        return new CodecMapper(column);
+    }
+
+    // Field accessors only fail with unchecked exceptions, such as a ClassCastException for an entity of another type.
+    @NotNull
+    static RuntimeException accessFailed(@NotNull Throwable e) {
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return (e instanceof RuntimeException runtimeException) ? runtimeException : new IllegalStateException(e);
+    }
+
+    // PreparedStatement.setX(int, x) and ResultSet.getX(int) of a primitive type, and the longest text form of its values.
+    private record Primitive(@NotNull MethodHandle setter, @NotNull MethodHandle getter, int estimatedSize) {
+
+        @NotNull
+        static Primitive of(@NotNull Class<?> type, @NotNull String name, int estimatedSize) {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            try {
+                return new Primitive(
+                        lookup.findVirtual(PreparedStatement.class, "set" + name, MethodType.methodType(void.class, int.class, type)),
+                        lookup.findVirtual(ResultSet.class, "get" + name, MethodType.methodType(type, int.class)),
+                        estimatedSize
+                );
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+    }
+
+    // Single-value binds, such as ids, still go through the codec.
+    private static final class PrimitiveMapper extends CodecMapper {
+
+        // (PreparedStatement, int, Object)void and (ResultSet, int, Object)void, the entity being the last argument.
+        private final MethodHandle binder;
+        private final MethodHandle reader;
+        private final int estimatedSize;
+
+        private PrimitiveMapper(@NotNull ColumnMetadata column, @NotNull Primitive primitive) {
+            super(column);
+            this.binder = MethodHandles.filterArguments(primitive.setter(), 2, column.getGetter());
+            MethodHandle read = MethodHandles.collectArguments(column.getSetter(), 1, primitive.getter());
+            this.reader = MethodHandles.permuteArguments(read, MethodType.methodType(void.class, ResultSet.class, int.class, Object.class), 2, 0, 1);
+            this.estimatedSize = primitive.estimatedSize();
+        }
+
+        @Override
+        public void bind(@NotNull PreparedStatement statement, int index, @NotNull Object entity) throws SQLException {
+            try {
+                binder.invokeExact(statement, index, entity);
+            } catch (SQLException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        @Override
+        public void read(@NotNull ResultSet resultSet, int index, @NotNull Object entity) throws SQLException {
+            try {
+                reader.invokeExact(resultSet, index, entity);
+            } catch (SQLException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw accessFailed(e);
+            }
+        }
+
+        @Override
+        public int estimateSize(@NotNull Object entity) {
+            return estimatedSize;
+        }
+
+    }
+
+    private static class CodecMapper extends ColumnMapper {
+
+        private final TypeCodec<Object> codec;
+
+        @SuppressWarnings("unchecked")
+        private CodecMapper(ColumnMetadata column) {
+            super(column);
+            this.codec = (TypeCodec<Object>) column.getCodec();
+        }
+
+        @Override
+        public void bindValue(@NotNull PreparedStatement statement, int index, @Nullable Object value) throws SQLException {
+            codec.bind(statement, index, value);
+        }
+
+        @Override
+        public Object readValue(@NotNull ResultSet resultSet, int index) throws SQLException {
+            return codec.read(resultSet, index);
+        }
+
+        @Override
+        public int estimateSize(@NotNull Object entity) {
+            Object value = column.get(entity);
+            return (value != null) ? codec.estimateSize(value) : 4;
+        }
+
+    }
+
+}
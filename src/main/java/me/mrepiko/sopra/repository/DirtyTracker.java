@@ -0,0 +1,49 @@
+package me.mrepiko.sopra.repository;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import me.mrepiko.sopra.codec.ValueSnapshots;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+
+// Last known column values of entities, keyed by identity and dropped once an entity is garbage collected.
+final class DirtyTracker<T> {
+
+    private final ColumnMapper[] mappers;
+    private final Cache<T, Object[]> snapshots = Caffeine.newBuilder().weakKeys().build();
+
+    DirtyTracker(@NotNull ColumnMapper[] mappers) {
+        this.mappers = mappers;
+    }
+
+    void snapshot(@NotNull T entity) {
+        Object[] values = new Object[mappers.length];
+        for (int i = 0; i < mappers.length; i++) {
+            values[i] = ValueSnapshots.take(mappers[i].getColumn().get(entity));
+        }
+        snapshots.put(entity, values);
+    }
+
+    void forget(@NotNull T entity) {
+        snapshots.invalidate(entity);
+    }
+
+    // Indexes of the mappers whose values changed since the last snapshot, or null when the entity has none.
+    @Nullable
+    BitSet getChangedColumns(@NotNull T entity) {
+        Object[] values = snapshots.getIfPresent(entity);
+        if (values == null) {
+            return null;
+        }
+        BitSet changed = new BitSet(mappers.length);
+        for (int i = 0; i < mappers.length; i++) {
+            if (ValueSnapshots.isChanged(values[i], mappers[i].getColumn().get(entity))) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+}
@@ -0,0 +1,137 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Base64;
+import java.util.Set;
+import java.util.UUID;
+
+// Encodes the seek key of the last row of a page as URL-safe Base64. The key columns are part of the cursor,
+// so a cursor of another table or key is rejected instead of seeking to an unrelated position.
+final class KeysetCursor {
+
+    private static final Set<Class<?>> SUPPORTED_TYPES = Set.of(
+            long.class, int.class, short.class, byte.class, double.class, float.class, boolean.class,
+            Long.class, Integer.class, Short.class, Byte.class, Double.class, Float.class, Boolean.class,
+            BigDecimal.class, BigInteger.class, String.class, UUID.class, byte[].class,
+            Timestamp.class, Instant.class, LocalDateTime.class, LocalDate.class, LocalTime.class
+    );
+
+    private final ColumnMetadata[] columns;
+    private final String signature;
+
+    KeysetCursor(@NotNull String tableName, @NotNull ColumnMetadata[] columns) {
+        this.columns = columns;
+        StringBuilder signature = new StringBuilder(tableName);
+        for (ColumnMetadata column : columns) {
+            signature.append(':').append(column.getColumnName());
+        }
+        this.signature = signature.toString();
+    }
+
+    static boolean isSupported(@NotNull Class<?> type) {
+        return SUPPORTED_TYPES.contains(type) || type.isEnum();
+    }
+
+    @NotNull
+    String encode(@NotNull Object entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeUTF(signature);
+            for (ColumnMetadata column : columns) {
+                Object value = column.get(entity);
+                // A null key is marked as such, rather than written as text that a String column could also hold.
+                output.writeBoolean(value != null);
+                if (value != null) {
+                    output.writeUTF((value instanceof byte[] array) ? Base64.getEncoder().encodeToString(array)
+                            : (value instanceof Enum<?> constant) ? constant.name()
+                            : value.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode cursor", e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    @NotNull
+    Object[] decode(@NotNull String cursor) {
+        String cursorSignature;
+        String[] texts = new String[columns.length];
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)))) {
+            cursorSignature = input.readUTF();
+            for (int i = 0; i < texts.length; i++) {
+                texts[i] = input.readBoolean() ? input.readUTF() : null;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+        }
+        if (!signature.equals(cursorSignature)) {
+            throw new IllegalArgumentException("Cursor does not belong to " + signature + ": " + cursor);
+        }
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            try {
+                values[i] = (texts[i] != null) ? parse(columns[i].getJavaType(), texts[i]) : null;
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Malformed cursor: " + cursor, e);
+            }
+        }
+        return values;
+    }
+
+    @NotNull
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object parse(@NotNull Class<?> type, @NotNull String text) {
+        if (type.isEnum()) {
+            return Enum.valueOf((Class) type, text);
+        } else if (type == long.class || type == Long.class) {
+            return Long.valueOf(text);
+        } else if (type == int.class || type == Integer.class) {
+            return Integer.valueOf(text);
+        } else if (type == short.class || type == Short.class) {
+            return Short.valueOf(text);
+        } else if (type == byte.class || type == Byte.class) {
+            return Byte.valueOf(text);
+        } else if (type == double.class || type == Double.class) {
+            return Double.valueOf(text);
+        } else if (type == float.class || type == Float.class) {
+            return Float.valueOf(text);
+        } else if (type == boolean.class || type == Boolean.class) {
+            return Boolean.valueOf(text);
+        } else if (type == BigDecimal.class) {
+            return new BigDecimal(text);
+        } else if (type == BigInteger.class) {
+            return new BigInteger(text);
+        } else if (type == UUID.class) {
+            return UUID.fromString(text);
+        } else if (type == byte[].class) {
+            return Base64.getDecoder().decode(text);
+        } else if (type == Timestamp.class) {
+            return Timestamp.valueOf(text);
+        } else if (type == Instant.class) {
+            return Instant.parse(text);
+        } else if (type == LocalDateTime.class) {
+            return LocalDateTime.parse(text);
+        } else if (type == LocalDate.class) {
+            return LocalDate.parse(text);
+        } else if (type == LocalTime.class) {
+            return LocalTime.parse(text);
+        }
+        return text;
+    }
+
+}
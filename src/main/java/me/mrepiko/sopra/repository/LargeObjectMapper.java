@@ -0,0 +1,67 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.codec.LargeObjectCodec;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Maps a deferred large object. Repository queries select only its length and the value is fetched in chunks afterwards;
+// other queries returning the bytes themselves are mapped from those.
+final class LargeObjectMapper<T> extends ColumnMapper {
+
+    private final SopraRepository<T> repository;
+    private final LargeObjectCodec<Object> codec;
+
+    @SuppressWarnings("unchecked")
+    LargeObjectMapper(@NotNull SopraRepository<T> repository, @NotNull ColumnMetadata column) {
+        super(column);
+        this.repository = repository;
+        this.codec = (LargeObjectCodec<Object>) column.getCodec();
+    }
+
+    @Override
+    public void bindValue(@NotNull PreparedStatement statement, int index, @Nullable Object value) throws SQLException {
+        codec.bind(statement, index, value);
+    }
+
+    @Override
+    public Object readValue(@NotNull ResultSet resultSet, int index) throws SQLException {
+        return codec.read(resultSet, index);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void read(@NotNull ResultSet resultSet, int index, @NotNull Object entity) throws SQLException {
+        Object value = resultSet.getObject(index);
+        try {
+            if (value == null) {
+                column.set(entity, null);
+            } else if (value instanceof byte[] bytes) {
+                column.set(entity, codec.fromStream(new ByteArrayInputStream(bytes), bytes.length));
+            } else {
+                long length = ((Number) value).longValue();
+                Object id = repository.metadata.requireIdColumn().get(entity);
+                if (id == null) {
+                    throw new SQLException("Cannot load " + column.getFieldName() + " without the row's id");
+                }
+                ChunkedBlobInputStream<T> stream = new ChunkedBlobInputStream<>(repository, repository.getDataSourceId((T) entity), id, column, length);
+                column.set(entity, codec.fromStream(stream, length));
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to load " + column.getFieldName() + " of " + repository.metadata.getType().getName(), e);
+        }
+    }
+
+    @Override
+    public int estimateSize(@NotNull Object entity) {
+        Object value = column.get(entity);
+        return (value != null) ? codec.estimateSize(value) : 4;
+    }
+
+}
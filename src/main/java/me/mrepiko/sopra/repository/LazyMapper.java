@@ -0,0 +1,73 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.codec.LazyColumn;
+import me.mrepiko.sopra.codec.TypeCodec;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Maps a @Lazy column. Repository queries do not select it and give the field a LazyColumn that reads the value by
+// the row's id on first access; other queries returning the column are mapped from it.
+final class LazyMapper<T> extends ColumnMapper {
+
+    private final SopraRepository<T> repository;
+    private final TypeCodec<Object> codec;
+    private final String selectSql;
+
+    @SuppressWarnings("unchecked")
+    LazyMapper(@NotNull SopraRepository<T> repository, @NotNull ColumnMetadata column) {
+        super(column);
+        this.repository = repository;
+        this.codec = (TypeCodec<Object>) column.getCodec();
+        this.selectSql = "SELECT " + column.getColumnName() + " FROM " + repository.metadata.getTableName()
+                + " WHERE " + repository.metadata.requireIdColumn().getColumnName() + " = ?";
+    }
+
+    // Writes leave unloaded values out, so loading one here would only cost a query per row. Bulk loads cannot leave
+    // columns out and end up here.
+    @Override
+    public void bindValue(@NotNull PreparedStatement statement, int index, @Nullable Object value) throws SQLException {
+        if (value instanceof LazyColumn<?> lazy && !lazy.isLoaded()) {
+            throw new IllegalStateException("Lazy column " + column.getColumnName() + " of " + repository.metadata.getTableName()
+                    + " was never loaded and cannot be written");
+        }
+        codec.bind(statement, index, (value instanceof LazyColumn<?> lazy) ? lazy.get() : value);
+    }
+
+    @Override
+    public Object readValue(@NotNull ResultSet resultSet, int index) throws SQLException {
+        return codec.read(resultSet, index);
+    }
+
+    @Override
+    public void read(@NotNull ResultSet resultSet, int index, @NotNull Object entity) throws SQLException {
+        Object value = codec.read(resultSet, index);
+        // Counts as not loaded until accessed, so updates still leave the column alone when it is never used.
+        column.set(entity, LazyColumn.deferred(() -> value));
+    }
+
+    @Override
+    public int estimateSize(@NotNull Object entity) {
+        Object value = column.get(entity);
+        if (value instanceof LazyColumn<?> lazy && lazy.isLoaded()) {
+            Object loaded = lazy.get();
+            return (loaded != null) ? codec.estimateSize(loaded) : 4;
+        }
+        return 4;
+    }
+
+    @SuppressWarnings("unchecked")
+    void defer(@NotNull Object entity) {
+        column.set(entity, LazyColumn.deferred(() -> repository.readLazyColumn((T) entity, this)));
+    }
+
+    @NotNull
+    String getSelectSql() {
+        return selectSql;
+    }
+
+}
@@ -0,0 +1,16 @@
+package me.mrepiko.sopra.repository;
+
+import java.util.concurrent.TimeUnit;
+
+// Totals of a bulk load so far, reported after every committed chunk.
+public record LoadProgress(long rows, long bytes, int chunks, long elapsedNanos) {
+
+    public double rowsPerSecond() {
+        return (elapsedNanos == 0) ? 0 : rows / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public double bytesPerSecond() {
+        return (elapsedNanos == 0) ? 0 : bytes / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+}
@@ -0,0 +1,19 @@
+package me.mrepiko.sopra.repository;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+// One page of a keyset read. The cursor continues after the last item and is null on the last page.
+public record Page<T>(@NotNull List<T> items, @Nullable String nextCursor) {
+
+    public Page {
+        items = List.copyOf(items);
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+}
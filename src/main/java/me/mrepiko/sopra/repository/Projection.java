@@ -0,0 +1,245 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.RecordComponent;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Maps rows onto a record or an interface declaring a subset of an entity's columns. Record components and interface
+// getters are matched to fields by name, else to column names, and only their columns are selected.
+final class Projection<P> {
+
+    private final Class<P> type;
+    private final String[] names;
+    private final ColumnMapper[] mappers;
+    private final String selectAllSql;
+    @Nullable
+    private final String selectByIdSql;
+    // Canonical constructor taking an Object[] of the component values, for records.
+    @Nullable
+    private final MethodHandle constructor;
+    // Component index of every getter, for interfaces.
+    @Nullable
+    private final Map<Method, Integer> getters;
+
+    Projection(@NotNull Class<P> type, @NotNull EntityMetadata<?> metadata, @NotNull ColumnMapper[] entityMappers) {
+        this.type = type;
+        List<String> names = new ArrayList<>();
+        List<Class<?>> types = new ArrayList<>();
+        if (type.isRecord()) {
+            for (RecordComponent component : type.getRecordComponents()) {
+                names.add(component.getName());
+                types.add(component.getType());
+            }
+            this.constructor = findConstructor(type, types);
+            this.getters = null;
+        } else if (type.isInterface()) {
+            Map<Method, Integer> getters = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (!Modifier.isAbstract(method.getModifiers())) {
+                    continue;
+                }
+                if (method.getParameterCount() != 0 || method.getReturnType() == void.class) {
+                    throw new IllegalArgumentException("Projection " + type.getName() + " declares " + method.getName() + ", which is not a getter");
+                }
+                String name = getPropertyName(method);
+                int index = names.indexOf(name);
+                if (index == -1) {
+                    index = names.size();
+                    names.add(name);
+                    types.add(method.getReturnType());
+                }
+                getters.put(method, index);
+            }
+            this.constructor = null;
+            this.getters = getters;
+        } else {
+            throw new IllegalArgumentException("Projection " + type.getName() + " is neither a record nor an interface");
+        }
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("Projection " + type.getName() + " declares no columns");
+        }
+
+        this.names = names.toArray(new String[0]);
+        this.mappers = new ColumnMapper[names.size()];
+        for (int i = 0; i < mappers.length; i++) {
+            ColumnMapper mapper = findMapper(entityMappers, names.get(i));
+            if (mapper == null) {
+                throw new IllegalArgumentException("Projection " + type.getName() + " has " + names.get(i)
+                        + ", which is not a column of " + metadata.getType().getName());
+            }
+            Class<?> columnType = box(mapper.getColumn().getJavaType());
+            if (!box(types.get(i)).isAssignableFrom(columnType)) {
+                throw new IllegalArgumentException("Projection " + type.getName() + " declares " + names.get(i) + " as "
+                        + types.get(i).getName() + ", but its column holds " + columnType.getName());
+            }
+            mappers[i] = mapper;
+        }
+        this.selectAllSql = "SELECT " + Arrays.stream(mappers).map(mapper -> mapper.getColumn().getColumnName()).collect(Collectors.joining(", "))
+                + " FROM " + metadata.getTableName();
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        this.selectByIdSql = (idColumn != null) ? selectAllSql + " WHERE " + idColumn.getColumnName() + " = ?" : null;
+    }
+
+    @NotNull
+    String getSelectAllSql() {
+        return selectAllSql;
+    }
+
+    @Nullable
+    String getSelectByIdSql() {
+        return selectByIdSql;
+    }
+
+    // Reads the projection's columns in the order of getSelectAllSql.
+    @NotNull
+    P read(@NotNull ResultSet resultSet) throws SQLException {
+        Object[] values = new Object[mappers.length];
+        for (int i = 0; i < mappers.length; i++) {
+            values[i] = mappers[i].readValue(resultSet, i + 1);
+        }
+        return create(values);
+    }
+
+    // Result column of every component in a query's result.
+    @NotNull
+    int[] getLayout(@NotNull ResultSetMetaData resultSetMetaData) throws SQLException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = resultSetMetaData.getColumnCount(); i >= 1; i--) {
+            columns.put(resultSetMetaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        int[] layout = new int[mappers.length];
+        for (int i = 0; i < mappers.length; i++) {
+            Integer index = columns.get(mappers[i].getColumn().getColumnName().toLowerCase(Locale.ROOT));
+            if (index == null) {
+                throw new IllegalArgumentException("Query does not select column " + mappers[i].getColumn().getColumnName()
+                        + " of projection " + type.getName());
+            }
+            layout[i] = index;
+        }
+        return layout;
+    }
+
+    @NotNull
+    P read(@NotNull ResultSet resultSet, @NotNull int[] layout) throws SQLException {
+        Object[] values = new Object[mappers.length];
+        for (int i = 0; i < mappers.length; i++) {
+            values[i] = mappers[i].readValue(resultSet, layout[i]);
+        }
+        return create(values);
+    }
+
+    @NotNull
+    private P create(@NotNull Object[] values) {
+        if (getters != null) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, new Values(values)));
+        }
+        try {
+            return type.cast(Objects.requireNonNull(constructor).invokeExact(values));
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to instantiate projection " + type.getName(), e);
+        }
+    }
+
+    @Nullable
+    private static ColumnMapper findMapper(@NotNull ColumnMapper[] mappers, @NotNull String name) {
+        for (ColumnMapper mapper : mappers) {
+            if (mapper.getColumn().getFieldName().equals(name)) {
+                return mapper;
+            }
+        }
+        for (ColumnMapper mapper : mappers) {
+            if (mapper.getColumn().getColumnName().equalsIgnoreCase(name)) {
+                return mapper;
+            }
+        }
+        return null;
+    }
+
+    @NotNull
+    private static MethodHandle findConstructor(@NotNull Class<?> type, @NotNull List<Class<?>> types) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, types));
+            return constructor.asType(constructor.type().generic()).asSpreader(Object[].class, types.size());
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access projection " + type.getName() + ", is its package open to Sopra?", e);
+        }
+    }
+
+    // getName and isName read name, other getters the column named like the method.
+    @NotNull
+    private static String getPropertyName(@NotNull Method method) {
+        String name = method.getName();
+        int prefix = name.startsWith("get") ? 3 : (name.startsWith("is") && box(method.getReturnType()) == Boolean.class) ? 2 : 0;
+        if (prefix == 0 || name.length() == prefix || !Character.isUpperCase(name.charAt(prefix))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+    }
+
+    @NotNull
+    private static Class<?> box(@NotNull Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+    // Column values behind an interface projection, compared by value like a record.
+    private final class Values implements InvocationHandler {
+
+        private final Object[] values;
+
+        private Values(@NotNull Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Integer index = Objects.requireNonNull(getters).get(method);
+            if (index != null) {
+                Object value = values[index];
+                if (value == null && method.getReturnType().isPrimitive()) {
+                    throw new NullPointerException(names[index] + " of projection " + type.getName() + " is null");
+                }
+                return value;
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return switch (method.getName()) {
+                case "equals" -> args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                        && Proxy.getInvocationHandler(args[0]) instanceof Projection<?>.Values other
+                        && other.getProjection() == Projection.this && Arrays.equals(values, other.values);
+                case "hashCode" -> Arrays.hashCode(values);
+                case "toString" -> {
+                    StringJoiner joiner = new StringJoiner(", ", type.getSimpleName() + "[", "]");
+                    for (int i = 0; i < names.length; i++) {
+                        joiner.add(names[i] + "=" + values[i]);
+                    }
+                    yield joiner.toString();
+                }
+                default -> throw new UnsupportedOperationException(method.getName() + " of projection " + type.getName());
+            };
+        }
+
+        @NotNull
+        private Projection<P> getProjection() {
+            return Projection.this;
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.cache.EntityCache;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public interface Repository<T> {
+
+    void insert(@NotNull T entity);
+
+    @NotNull
+    BatchResult insertAll(@NotNull Collection<T> entities);
+
+    @NotNull
+    BatchResult upsertAll(@NotNull Collection<T> entities);
+
+    // Streams the entities with LOAD DATA LOCAL INFILE, committing every chunk of about 64 MiB. Generated ids are not
+    // set on the entities, and rows with duplicate keys are skipped. Needs SopraApi.Builder#setBulkLoadEnabled.
+    @NotNull
+    BatchResult load(@NotNull Iterator<? extends T> entities);
+
+    @NotNull
+    BatchResult load(@NotNull Iterator<? extends T> entities, long chunkBytes, @Nullable Consumer<LoadProgress> progress);
+
+    @Nullable
+    T findById(@NotNull Object id);
+
+    // Requires an integral @Id. Ids are queried in chunked IN lists, several chunks at once; missing ids are left out.
+    @NotNull
+    LongObjectMap<T> findAllByIds(@NotNull long[] ids);
+
+    @NotNull
+    LongObjectMap<T> findAllByIds(@NotNull int[] ids);
+
+    @NotNull
+    List<T> findAll();
+
+    // Projections read only the columns of a record or interface whose components or getters are named like fields or
+    // columns of the entity. They are always queried, bypassing the cache and buffered writes.
+    @NotNull
+    <P> List<P> findAll(@NotNull Class<P> projection);
+
+    @Nullable
+    <P> P findById(@NotNull Object id, @NotNull Class<P> projection);
+
+    // Rows ordered by @Id, else @PrimaryKey, else @UniqueConstraint, continuing after the cursor of the previous page.
+    // A null cursor starts at the first row. Every page costs one index seek, however deep it is.
+    @NotNull
+    Page<T> findPage(@Nullable String cursor, int limit);
+
+    // The returned stream holds a connection until it is fully consumed or closed.
+    @NotNull
+    Stream<T> streamAll();
+
+    @NotNull
+    Stream<T> stream(@NotNull String query, @NotNull Object... parameters);
+
+    // The query must select the projection's columns, matched by label.
+    @NotNull
+    <P> Stream<P> stream(@NotNull Class<P> projection, @NotNull String query, @NotNull Object... parameters);
+
+    boolean update(@NotNull T entity);
+
+    // Entities that changed the same columns are written with one batched statement per data source.
+    @NotNull
+    BatchResult updateAll(@NotNull Collection<T> entities);
+
+    // Writes updates buffered by @WriteBehind now; does nothing for other entities.
+    void flush();
+
+    boolean delete(@NotNull T entity);
+
+    boolean deleteById(@NotNull Object id);
+
+    // Only present for entities annotated with @Cached.
+    @Nullable
+    EntityCache<T> getCache();
+
+}
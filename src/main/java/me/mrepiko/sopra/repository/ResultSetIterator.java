@@ -0,0 +1,99 @@
+package me.mrepiko.sopra.repository;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Maps rows lazily and owns the connection until the rows are exhausted or the iterator is closed.
+public final class ResultSetIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final RowMapper<T> mapper;
+    private boolean hasNext;
+    private boolean advanced;
+    private boolean exhausted;
+    private boolean closed;
+
+    ResultSetIterator(@NotNull Connection connection, @NotNull PreparedStatement statement, @NotNull ResultSet resultSet, @NotNull RowMapper<T> mapper) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!advanced) {
+            try {
+                hasNext = resultSet.next();
+            } catch (SQLException e) {
+                close();
+                throw new RuntimeException("Failed to read next row", e);
+            }
+            advanced = true;
+            if (!hasNext) {
+                exhausted = true;
+                close();
+            }
+        }
+        return hasNext;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        try {
+            return mapper.map(resultSet);
+        } catch (SQLException e) {
+            close();
+            throw new RuntimeException("Failed to map row", e);
+        }
+    }
+
+    @NotNull
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (Connection connection = this.connection;
+             PreparedStatement statement = this.statement;
+             ResultSet resultSet = this.resultSet) {
+            // Closing a streaming result set reads all remaining rows; cancelling the query first avoids that.
+            if (!exhausted) {
+                statement.cancel();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to close result set", e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+}
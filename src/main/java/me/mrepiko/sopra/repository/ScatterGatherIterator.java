@@ -0,0 +1,117 @@
+package me.mrepiko.sopra.repository;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Reads several result sets in parallel, one virtual thread each, and hands out rows in the order they arrive.
+final class ScatterGatherIterator<T> implements Iterator<T>, AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 1_024;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final Object DONE = new Object();
+
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final int sources;
+    private volatile boolean closed;
+    private int finished;
+    private Object next;
+
+    ScatterGatherIterator(@NotNull List<Supplier<ResultSetIterator<T>>> sources) {
+        this.sources = sources.size();
+        for (Supplier<ResultSetIterator<T>> source : sources) {
+            Thread.ofVirtual().name("sopra-scatter").start(() -> drain(source));
+        }
+    }
+
+    private void drain(@NotNull Supplier<ResultSetIterator<T>> source) {
+        try (ResultSetIterator<T> iterator = source.get()) {
+            while (!closed && iterator.hasNext()) {
+                if (!offer(iterator.next())) {
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            // Anything else, such as an Error or a checked exception thrown sneakily by a codec, would otherwise end
+            // the thread without telling the consumer, which then waits forever.
+            offer(new Failure(e));
+            return;
+        }
+        offer(DONE);
+    }
+
+    // Gives up once the consumer closes, so an abandoned stream releases its connections.
+    private boolean offer(@NotNull Object element) {
+        try {
+            while (!closed) {
+                if (queue.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            if (closed || finished == sources) {
+                return false;
+            }
+            Object element;
+            try {
+                element = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for rows", e);
+            }
+            if (element == DONE) {
+                finished++;
+            } else if (element instanceof Failure failure) {
+                close();
+                if (failure.exception instanceof Error error) {
+                    throw error;
+                }
+                throw new RuntimeException("Failed to read rows from a shard", failure.exception);
+            } else {
+                next = element;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T element = (T) next;
+        next = null;
+        return element;
+    }
+
+    @NotNull
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private record Failure(@NotNull Throwable exception) { }
+
+}
@@ -0,0 +1,1355 @@
+package me.mrepiko.sopra.repository;
+
+import com.mysql.cj.jdbc.JdbcConnection;
+import me.mrepiko.sopra.SopraApi;
+import me.mrepiko.sopra.annotations.Cached;
+import me.mrepiko.sopra.annotations.TrackChanges;
+import me.mrepiko.sopra.annotations.WriteBehind;
+import me.mrepiko.sopra.cache.EntityCache;
+import me.mrepiko.sopra.codec.LargeObjectCodec;
+import me.mrepiko.sopra.codec.LazyColumn;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.IndexMetadata;
+import me.mrepiko.sopra.metrics.Operation;
+import me.mrepiko.sopra.routing.ShardRing;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class SopraRepository<T> implements Repository<T> {
+
+    private static final int STREAM_FETCH_SIZE = 1_000;
+    // Most ids per IN list. Fewer are used when the statement would otherwise outgrow the statement cache.
+    private static final int MAX_IN_LIST_SIZE = 512;
+    // The driver only caches statements shorter than its prepStmtCacheSqlLimit, which the builder sets to this.
+    private static final int STATEMENT_CACHE_SQL_LIMIT = 2048;
+    // Connections one findAllByIds call uses at once per data source.
+    private static final int MAX_PARALLEL_CHUNKS = 4;
+    // Bytes of a deferred large object fetched per query.
+    static final int LARGE_OBJECT_CHUNK_SIZE = 1024 * 1024;
+
+    protected final SopraApi sopra;
+    protected final EntityMetadata<T> metadata;
+    protected final ColumnMapper[] mappers;
+    // Mappers in the order of selectAllSql, which puts deferred large objects last so their row's key is read first.
+    private final ColumnMapper[] selectMappers;
+    private final boolean largeObjects;
+    // Mappers of @Lazy columns, which repository queries leave out.
+    private final List<LazyMapper<T>> lazyMappers;
+
+    private final String selectAllSql;
+    @Nullable
+    private final String selectByIdSql;
+    @Nullable
+    private final UpdateStatement fullUpdate;
+    @Nullable
+    private final String deleteSql;
+    private final ColumnMapper[] updateMappers;
+    // Indexes of the update mappers of @Lazy columns, which are not written while their value was never loaded.
+    private final int[] lazyUpdateColumns;
+    private final Map<BitSet, UpdateStatement> updateStatements = new ConcurrentHashMap<>();
+    private final Map<Integer, String> inListSql = new ConcurrentHashMap<>();
+    private final int maxInListSize;
+    @Nullable
+    private final ColumnMapper[] seekMappers;
+    // Seek key position bound to each placeholder of the next page condition.
+    private final int[] seekBindings;
+    @Nullable
+    private final KeysetCursor keysetCursor;
+    @Nullable
+    private final String firstPageSql;
+    @Nullable
+    private final String nextPageSql;
+    @Nullable
+    private final DirtyTracker<T> dirtyTracker;
+    @Nullable
+    private final ColumnMapper idMapper;
+
+    // Columns that are left out of an INSERT when unset, so the server applies their default or auto increment, and
+    // @Lazy columns, which are left out while not loaded, as in updates.
+    private final int[] optionalColumns;
+    private final Map<Long, InsertStatement> insertStatements = new ConcurrentHashMap<>();
+    private final BatchWriter<T> batchWriter;
+    private final BulkLoader<T> bulkLoader;
+    private final Map<String, ColumnMapper> mappersByColumn = new HashMap<>();
+    private final Map<Class<?>, Projection<?>> projections = new ConcurrentHashMap<>();
+    @Nullable
+    private final EntityCache<T> cache;
+    @Nullable
+    private final ShardRing shardRing;
+    @Nullable
+    private final WriteBehindBuffer<T> writeBehind;
+
+    public SopraRepository(@NotNull SopraApi sopra, @NotNull EntityMetadata<T> metadata) {
+        this.sopra = sopra;
+        this.metadata = metadata;
+
+        List<ColumnMetadata> columns = metadata.getColumns();
+        this.mappers = new ColumnMapper[columns.size()];
+        List<Integer> optionalColumns = new ArrayList<>();
+        ColumnMapper idMapper = null;
+        List<ColumnMapper> deferredMappers = new ArrayList<>();
+        List<LazyMapper<T>> lazyMappers = new ArrayList<>();
+        boolean largeObjects = false;
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnMetadata column = columns.get(i);
+            if (column.isLazy()) {
+                if (metadata.getIdColumn() == null) {
+                    throw new IllegalStateException("Entity " + metadata.getType().getName() + " needs an @Id to load " + column.getFieldName() + " lazily");
+                }
+                LazyMapper<T> lazyMapper = new LazyMapper<>(this, column);
+                mappers[i] = lazyMapper;
+                lazyMappers.add(lazyMapper);
+            }
+            if (column.getCodec() instanceof LargeObjectCodec<?> codec) {
+                largeObjects = true;
+                if (codec.isDeferred() && !column.isLazy()) {
+                    if (metadata.getIdColumn() == null) {
+                        throw new IllegalStateException("Entity " + metadata.getType().getName() + " needs an @Id to load " + column.getFieldName() + " in chunks");
+                    }
+                    mappers[i] = new LargeObjectMapper<>(this, column);
+                    deferredMappers.add(mappers[i]);
+                }
+            }
+            if (mappers[i] == null) {
+                mappers[i] = ColumnMapper.of(column);
+            }
+            mappersByColumn.put(column.getColumnName().toLowerCase(Locale.ROOT), mappers[i]);
+            if (column == metadata.getIdColumn()) {
+                idMapper = mappers[i];
+            }
+            if (column.isAutoIncrement() || column.getDefaultValue() != null || column.isLazy()) {
+                optionalColumns.add(i);
+            }
+        }
+        if (optionalColumns.size() > Long.SIZE) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName() + " has more than " + Long.SIZE + " columns with defaults or lazy loading");
+        }
+        this.optionalColumns = optionalColumns.stream().mapToInt(Integer::intValue).toArray();
+        this.idMapper = idMapper;
+        this.largeObjects = largeObjects;
+        this.lazyMappers = List.copyOf(lazyMappers);
+
+        List<ColumnMapper> selectMappers = new ArrayList<>();
+        for (ColumnMapper mapper : mappers) {
+            if (!deferredMappers.contains(mapper) && !(mapper instanceof LazyMapper<?>)) {
+                selectMappers.add(mapper);
+            }
+        }
+        selectMappers.addAll(deferredMappers);
+        this.selectMappers = selectMappers.toArray(new ColumnMapper[0]);
+        String selectColumns = selectMappers.stream()
+                .map(mapper -> {
+                    String columnName = mapper.getColumn().getColumnName();
+                    return deferredMappers.contains(mapper) ? "LENGTH(" + columnName + ") AS " + columnName : columnName;
+                })
+                .collect(Collectors.joining(", "));
+        this.selectAllSql = "SELECT " + selectColumns + " FROM " + metadata.getTableName();
+
+        this.seekMappers = findSeekMappers();
+        if (seekMappers != null) {
+            List<String> seekColumns = Arrays.stream(seekMappers).map(mapper -> mapper.getColumn().getColumnName()).toList();
+            String orderBy = " ORDER BY " + String.join(", ", seekColumns) + " LIMIT ?";
+            // (k1, k2) > (?, ?) spelled out as k1 > ? OR (k1 = ? AND k2 > ?): MariaDB scans the whole index for row
+            // comparisons, while both servers turn the expanded form into exact ranges.
+            List<String> branches = new ArrayList<>();
+            List<Integer> seekBindings = new ArrayList<>();
+            for (int i = 0; i < seekColumns.size(); i++) {
+                List<String> terms = new ArrayList<>();
+                for (int j = 0; j < i; j++) {
+                    terms.add(seekColumns.get(j) + " = ?");
+                    seekBindings.add(j);
+                }
+                terms.add(seekColumns.get(i) + " > ?");
+                seekBindings.add(i);
+                branches.add((terms.size() == 1) ? terms.getFirst() : "(" + String.join(" AND ", terms) + ")");
+            }
+            String condition = String.join(" OR ", branches);
+            this.seekBindings = seekBindings.stream().mapToInt(Integer::intValue).toArray();
+            this.keysetCursor = new KeysetCursor(metadata.getTableName(), Arrays.stream(seekMappers).map(ColumnMapper::getColumn).toArray(ColumnMetadata[]::new));
+            this.firstPageSql = selectAllSql + orderBy;
+            this.nextPageSql = selectAllSql + " WHERE " + condition + orderBy;
+        } else {
+            this.seekBindings = new int[0];
+            this.keysetCursor = null;
+            this.firstPageSql = null;
+            this.nextPageSql = null;
+        }
+
+        ColumnMetadata idColumn = metadata.getIdColumn();
+        this.maxInListSize = (idColumn != null)
+                ? getMaxInListSize(getInListSqlPrefix(idColumn).length(), STATEMENT_CACHE_SQL_LIMIT)
+                : MAX_IN_LIST_SIZE;
+        if (idColumn != null) {
+            String idCondition = " WHERE " + idColumn.getColumnName() + " = ?";
+            this.selectByIdSql = selectAllSql + idCondition;
+            this.deleteSql = "DELETE FROM " + metadata.getTableName() + idCondition;
+
+            List<ColumnMapper> updateMappers = new ArrayList<>();
+            for (ColumnMapper mapper : mappers) {
+                ColumnMetadata column = mapper.getColumn();
+                if (column != idColumn && column.getOnUpdate() == null) {
+                    updateMappers.add(mapper);
+                }
+            }
+            this.updateMappers = updateMappers.toArray(new ColumnMapper[0]);
+            this.lazyUpdateColumns = IntStream.range(0, updateMappers.size()).filter(i -> updateMappers.get(i).getColumn().isLazy()).toArray();
+            BitSet allColumns = new BitSet(updateMappers.size());
+            allColumns.set(0, updateMappers.size());
+            this.fullUpdate = updateMappers.isEmpty() ? null : createUpdateStatement(allColumns);
+            this.dirtyTracker = metadata.getType().isAnnotationPresent(TrackChanges.class) ? new DirtyTracker<>(this.updateMappers) : null;
+        } else {
+            this.selectByIdSql = null;
+            this.deleteSql = null;
+            this.updateMappers = new ColumnMapper[0];
+            this.lazyUpdateColumns = new int[0];
+            this.fullUpdate = null;
+            this.dirtyTracker = null;
+        }
+        this.batchWriter = new BatchWriter<>(this, metadata);
+        this.bulkLoader = new BulkLoader<>(this, metadata);
+
+        Cached cached = metadata.getType().getAnnotation(Cached.class);
+        this.cache = (cached != null) ? new EntityCache<>(metadata, cached, this::estimateSize) : null;
+
+        WriteBehind writeBehind = metadata.getType().getAnnotation(WriteBehind.class);
+        this.writeBehind = (writeBehind != null && fullUpdate != null)
+                ? new WriteBehindBuffer<>(metadata, writeBehind, sopra.getMetrics(), this::writeBuffered)
+                : null;
+
+        this.shardRing = sopra.getShardRing(metadata.getDataSourceId());
+        if (shardRing != null && metadata.getShardKeyColumn() == null) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName() + " is stored in shard group "
+                    + shardRing.getId() + " but has no field annotated with @ShardKey");
+        }
+    }
+
+    @Override
+    public void insert(@NotNull T entity) {
+        InsertStatement insert = getInsertStatement(entity);
+        String dataSourceId = getDataSourceId(entity);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getConnection(dataSourceId);
+             PreparedStatement statement = prepareWrite(connection, insert.sql(), insert.generatedKey() != null)) {
+            insert.bind(statement, entity);
+            statement.executeUpdate();
+            if (insert.generatedKey != null) {
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        insert.generatedKey.read(keys, 1, entity);
+                    }
+                }
+            }
+            failed = false;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to insert into " + metadata.getTableName(), e);
+        } finally {
+            record(dataSourceId, Operation.INSERT, insert.prefix(), start, failed);
+        }
+        if (dirtyTracker != null) {
+            dirtyTracker.snapshot(entity);
+        }
+        if (cache != null && cache.isWriteThrough()) {
+            cache.put(entity);
+        }
+    }
+
+    @Override
+    public @NotNull BatchResult insertAll(@NotNull Collection<T> entities) {
+        BatchResult result = batchWriter.write(entities, false);
+        if (dirtyTracker != null) {
+            entities.forEach(dirtyTracker::snapshot);
+        }
+        if (cache != null && cache.isWriteThrough()) {
+            entities.forEach(cache::put);
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull BatchResult upsertAll(@NotNull Collection<T> entities) {
+        BatchResult result = batchWriter.write(entities, true);
+        if (dirtyTracker != null) {
+            entities.forEach(dirtyTracker::snapshot);
+        }
+        if (cache != null) {
+            // Rows that already existed may hold server-side values the entities do not have.
+            entities.forEach(cache::invalidateEntity);
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull BatchResult load(@NotNull Iterator<? extends T> entities) {
+        return load(entities, BulkLoader.DEFAULT_CHUNK_BYTES, null);
+    }
+
+    @Override
+    public @NotNull BatchResult load(@NotNull Iterator<? extends T> entities, long chunkBytes, @Nullable Consumer<LoadProgress> progress) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive, got " + chunkBytes);
+        }
+        if (shardRing != null) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName() + " is sharded and cannot be bulk loaded");
+        }
+        return bulkLoader.load(entities, chunkBytes, progress);
+    }
+
+    @Override
+    public @Nullable T findById(@NotNull Object id) {
+        requireIdMapper();
+        if (writeBehind != null) {
+            T pending = writeBehind.get(id);
+            if (pending != null) {
+                if (dirtyTracker != null) {
+                    dirtyTracker.snapshot(pending);
+                }
+                return pending;
+            }
+        }
+        if (cache != null) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                if (dirtyTracker != null) {
+                    dirtyTracker.snapshot(cached);
+                }
+                return cached;
+            }
+        }
+        String dataSourceId = getDataSourceIdById(id);
+        T entity = (dataSourceId != null)
+                ? findById(dataSourceId, id)
+                : fanOut(shardId -> findById(shardId, id)).stream().filter(Objects::nonNull).findFirst().orElse(null);
+        if (entity != null && cache != null) {
+            cache.put(entity);
+        }
+        return entity;
+    }
+
+    @Nullable
+    private T findById(@NotNull String dataSourceId, @NotNull Object id) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(selectByIdSql)) {
+            requireIdMapper().bindValue(statement, 1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                T entity = resultSet.next() ? map(resultSet) : null;
+                failed = false;
+                return entity;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find " + metadata.getTableName() + " by id " + id, e);
+        } finally {
+            record(dataSourceId, Operation.FIND_BY_ID, selectByIdSql, start, failed);
+        }
+    }
+
+    @Override
+    public @NotNull LongObjectMap<T> findAllByIds(@NotNull long[] ids) {
+        return findAllByIds(ids, MAX_PARALLEL_CHUNKS);
+    }
+
+    // Same as findAllByIds(ids), with at most this many connections per data source at once. Async operations pass 1,
+    // since their limiter counts one connection per operation.
+    @NotNull
+    public LongObjectMap<T> findAllByIds(@NotNull long[] ids, int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Connections per data source must be positive");
+        }
+        int idIndex = requireIntegralIdIndex();
+        LongObjectMap<T> entities = new LongObjectMap<>(ids.length);
+        long[] missing = ids;
+        if (writeBehind != null || cache != null) {
+            missing = new long[ids.length];
+            int count = 0;
+            for (long id : ids) {
+                T entity = (writeBehind != null) ? writeBehind.get(id) : null;
+                if (entity == null && cache != null) {
+                    entity = cache.get(id);
+                }
+                if (entity == null) {
+                    missing[count++] = id;
+                } else {
+                    if (dirtyTracker != null) {
+                        dirtyTracker.snapshot(entity);
+                    }
+                    entities.put(id, entity);
+                }
+            }
+            missing = Arrays.copyOf(missing, count);
+        }
+        if (missing.length == 0) {
+            return entities;
+        }
+
+        // Each worker holds one connection and reads its share of the chunks in turn.
+        List<Callable<LongObjectMap<T>>> workers = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : partitionIds(missing).entrySet()) {
+            long[] dataSourceIds = entry.getValue();
+            int chunkSize = getInListSize(dataSourceIds.length, maxInListSize);
+            int chunks = (dataSourceIds.length + chunkSize - 1) / chunkSize;
+            int workerCount = Math.min(chunks, maxConnections);
+            for (int worker = 0; worker < workerCount; worker++) {
+                int first = worker;
+                workers.add(() -> findByIdChunks(entry.getKey(), dataSourceIds, chunkSize, first, workerCount, idIndex));
+            }
+        }
+        List<LongObjectMap<T>> results;
+        if (workers.size() == 1) {
+            try {
+                results = List.of(workers.getFirst().call());
+            } catch (Exception e) {
+                throw (e instanceof RuntimeException runtimeException) ? runtimeException : new RuntimeException(e);
+            }
+        } else {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<LongObjectMap<T>>> futures = new ArrayList<>(workers.size());
+                for (Callable<LongObjectMap<T>> worker : workers) {
+                    futures.add(executor.submit(worker));
+                }
+                results = new ArrayList<>(futures.size());
+                for (Future<LongObjectMap<T>> future : futures) {
+                    results.add(await(future));
+                }
+            }
+        }
+        for (LongObjectMap<T> result : results) {
+            if (cache != null) {
+                result.forEach((id, entity) -> cache.put(entity));
+            }
+            entities.putAll(result);
+        }
+        return entities;
+    }
+
+    @Override
+    public @NotNull LongObjectMap<T> findAllByIds(@NotNull int[] ids) {
+        long[] longIds = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            longIds[i] = ids[i];
+        }
+        return findAllByIds(longIds);
+    }
+
+    // Reads every workerCount-th chunk starting at the given one. The last chunk is padded with its final id,
+    // so only a few distinct statements exist and the driver's statement cache keeps them.
+    @NotNull
+    private LongObjectMap<T> findByIdChunks(@NotNull String dataSourceId, @NotNull long[] ids, int chunkSize,
+                                             int firstChunk, int workerCount, int idIndex) {
+        String sql = getInListSql(chunkSize);
+        LongObjectMap<T> entities = new LongObjectMap<>(ids.length / workerCount + 1);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int offset = firstChunk * chunkSize; offset < ids.length; offset += workerCount * chunkSize) {
+                for (int i = 0; i < chunkSize; i++) {
+                    statement.setLong(i + 1, ids[Math.min(offset + i, ids.length - 1)]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        entities.put(resultSet.getLong(idIndex), map(resultSet));
+                    }
+                }
+            }
+            failed = false;
+            return entities;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find " + metadata.getTableName() + " by ids", e);
+        } finally {
+            record(dataSourceId, Operation.FIND_BY_IDS, sql, start, failed);
+        }
+    }
+
+    // Ids grouped by the data source holding them. Without the id as shard key, every shard is asked for every id.
+    @NotNull
+    private Map<String, long[]> partitionIds(@NotNull long[] ids) {
+        if (shardRing == null) {
+            return Map.of(metadata.getDataSourceId(), ids);
+        }
+        Map<String, long[]> partitions = new LinkedHashMap<>();
+        if (metadata.getShardKeyColumn() != metadata.getIdColumn()) {
+            for (String shardId : shardRing.getShardIds()) {
+                partitions.put(shardId, ids);
+            }
+            return partitions;
+        }
+        Map<String, int[]> counts = new HashMap<>();
+        String[] owners = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            owners[i] = shardRing.getShard(ids[i]);
+            counts.computeIfAbsent(owners[i], x -> new int[1])[0]++;
+        }
+        counts.forEach((shardId, count) -> {
+            partitions.put(shardId, new long[count[0]]);
+            count[0] = 0;
+        });
+        for (int i = 0; i < ids.length; i++) {
+            partitions.get(owners[i])[counts.get(owners[i])[0]++] = ids[i];
+        }
+        return partitions;
+    }
+
+    // Powers of two up to the maximum, so small lookups are not padded to a full chunk.
+    static int getInListSize(int ids, int maxSize) {
+        return (ids >= maxSize) ? maxSize : Math.max(1, Integer.highestOneBit(ids - 1) << 1);
+    }
+
+    // Largest power of two of ids for which the statement, the prefix followed by "?,?,...,?)", stays shorter than the
+    // statement cache limit. Statements too long to be cached with a single id use the largest list.
+    static int getMaxInListSize(int prefixLength, int sqlLimit) {
+        int fitting = (sqlLimit - 1 - prefixLength) / 2;
+        if (fitting < 1) {
+            return MAX_IN_LIST_SIZE;
+        }
+        return Math.min(MAX_IN_LIST_SIZE, Integer.highestOneBit(fitting));
+    }
+
+    @NotNull
+    private String getInListSql(int size) {
+        return inListSql.computeIfAbsent(size, x -> getInListSqlPrefix(metadata.requireIdColumn())
+                + String.join(",", Collections.nCopies(size, "?")) + ")");
+    }
+
+    @NotNull
+    private String getInListSqlPrefix(@NotNull ColumnMetadata idColumn) {
+        return selectAllSql + " WHERE " + idColumn.getColumnName() + " IN (";
+    }
+
+    // The columns pages are ordered and continued by: the id, else the primary key, else a unique constraint
+    // or unique column without nulls. Null when none of them can be encoded into a cursor.
+    @Nullable
+    private ColumnMapper[] findSeekMappers() {
+        List<List<String>> candidates = new ArrayList<>();
+        if (metadata.getIdColumn() != null) {
+            candidates.add(List.of(metadata.getIdColumn().getColumnName()));
+        }
+        // Primary key columns are NOT NULL whatever the entity declares.
+        int notNullCandidates = candidates.size() + 1;
+        candidates.add(metadata.getPrimaryKeyColumns());
+        for (IndexMetadata uniqueConstraint : metadata.getUniqueConstraints()) {
+            if (uniqueConstraint.isFullLength()) {
+                candidates.add(uniqueConstraint.columns());
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            boolean notNull = i < notNullCandidates;
+            ColumnMapper[] seekMappers = candidates.get(i).stream()
+                    .map(columnName -> mappersByColumn.get(columnName.toLowerCase(Locale.ROOT)))
+                    .toArray(ColumnMapper[]::new);
+            if (seekMappers.length > 0 && Arrays.stream(seekMappers).allMatch(mapper -> mapper != null
+                    && !mapper.getColumn().isLazy()
+                    && (notNull || !mapper.getColumn().isNullable())
+                    && KeysetCursor.isSupported(mapper.getColumn().getJavaType()))) {
+                return seekMappers;
+            }
+        }
+        return null;
+    }
+
+    // One-based position of the id in selected rows, read with getLong so keys are never boxed.
+    private int requireIntegralIdIndex() {
+        ColumnMapper idMapper = requireIdMapper();
+        Class<?> type = idMapper.getColumn().getJavaType();
+        if (type != long.class && type != int.class && type != short.class && type != Long.class && type != Integer.class && type != Short.class) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName() + " needs an integral @Id to be found by id arrays");
+        }
+        for (int i = 0; i < selectMappers.length; i++) {
+            if (selectMappers[i] == idMapper) {
+                return i + 1;
+            }
+        }
+        throw new IllegalStateException("Id of " + metadata.getType().getName() + " is not selected");
+    }
+
+    @Override
+    public @NotNull List<T> findAll() {
+        if (shardRing == null) {
+            return findAll(metadata.getDataSourceId());
+        }
+        List<T> entities = new ArrayList<>();
+        fanOut(this::findAll).forEach(entities::addAll);
+        return entities;
+    }
+
+    @NotNull
+    private List<T> findAll(@NotNull String dataSourceId) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(selectAllSql);
+             ResultSet resultSet = statement.executeQuery()) {
+            List<T> entities = new ArrayList<>();
+            while (resultSet.next()) {
+                entities.add(map(resultSet));
+            }
+            failed = false;
+            return entities;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to query " + metadata.getTableName(), e);
+        } finally {
+            record(dataSourceId, Operation.FIND_ALL, selectAllSql, start, failed);
+        }
+    }
+
+    @Override
+    public <P> @NotNull List<P> findAll(@NotNull Class<P> projection) {
+        Projection<P> mapping = getProjection(projection);
+        if (shardRing == null) {
+            return findAll(metadata.getDataSourceId(), mapping);
+        }
+        List<P> rows = new ArrayList<>();
+        fanOut(shardId -> findAll(shardId, mapping)).forEach(rows::addAll);
+        return rows;
+    }
+
+    @NotNull
+    private <P> List<P> findAll(@NotNull String dataSourceId, @NotNull Projection<P> projection) {
+        String sql = projection.getSelectAllSql();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            List<P> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(projection.read(resultSet));
+            }
+            failed = false;
+            return rows;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to query " + metadata.getTableName(), e);
+        } finally {
+            record(dataSourceId, Operation.FIND_ALL, sql, start, failed);
+        }
+    }
+
+    @Override
+    public <P> @Nullable P findById(@NotNull Object id, @NotNull Class<P> projection) {
+        requireIdMapper();
+        Projection<P> mapping = getProjection(projection);
+        String dataSourceId = getDataSourceIdById(id);
+        return (dataSourceId != null)
+                ? findById(dataSourceId, id, mapping)
+                : fanOut(shardId -> findById(shardId, id, mapping)).stream().filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    @Nullable
+    private <P> P findById(@NotNull String dataSourceId, @NotNull Object id, @NotNull Projection<P> projection) {
+        String sql = Objects.requireNonNull(projection.getSelectByIdSql());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            requireIdMapper().bindValue(statement, 1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                P row = resultSet.next() ? projection.read(resultSet) : null;
+                failed = false;
+                return row;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find " + metadata.getTableName() + " by id " + id, e);
+        } finally {
+            record(dataSourceId, Operation.FIND_BY_ID, sql, start, failed);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    private <P> Projection<P> getProjection(@NotNull Class<P> type) {
+        return (Projection<P>) projections.computeIfAbsent(type, x -> new Projection<>(type, metadata, mappers));
+    }
+
+    @Override
+    public @NotNull Page<T> findPage(@Nullable String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive, got " + limit);
+        }
+        if (seekMappers == null || keysetCursor == null || firstPageSql == null || nextPageSql == null) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName()
+                    + " needs an @Id, @PrimaryKey or @UniqueConstraint of non-null columns to be paged");
+        }
+        if (shardRing != null) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName() + " is sharded and cannot be paged by key");
+        }
+        Object[] after = (cursor != null) ? keysetCursor.decode(cursor) : null;
+        String sql = (after != null) ? nextPageSql : firstPageSql;
+        String dataSourceId = metadata.getDataSourceId();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                for (int position : seekBindings) {
+                    seekMappers[position].bindValue(statement, index++, after[position]);
+                }
+            }
+            // One extra row tells whether another page follows, so the last page never needs a query of its own.
+            statement.setInt(index, limit + 1);
+            List<T> entities = new ArrayList<>(limit + 1);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    entities.add(map(resultSet));
+                }
+            }
+            failed = false;
+            if (entities.size() <= limit) {
+                return new Page<>(entities, null);
+            }
+            entities.removeLast();
+            return new Page<>(entities, keysetCursor.encode(entities.getLast()));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read a page of " + metadata.getTableName(), e);
+        } finally {
+            record(dataSourceId, Operation.FIND_PAGE, sql, start, failed);
+        }
+    }
+
+    @Override
+    public @NotNull Stream<T> streamAll() {
+        return stream(selectAllSql);
+    }
+
+    @Override
+    public @NotNull Stream<T> stream(@NotNull String query, @NotNull Object... parameters) {
+        return stream(query, parameters, resultSetMetaData -> {
+            ColumnMapper[] layout = getLayout(resultSetMetaData);
+            List<LazyMapper<T>> deferredMappers = getDeferredMappers(layout);
+            return row -> map(row, layout, deferredMappers);
+        });
+    }
+
+    @Override
+    public <P> @NotNull Stream<P> stream(@NotNull Class<P> projection, @NotNull String query, @NotNull Object... parameters) {
+        Projection<P> mapping = getProjection(projection);
+        return stream(query, parameters, resultSetMetaData -> {
+            int[] layout = mapping.getLayout(resultSetMetaData);
+            return row -> mapping.read(row, layout);
+        });
+    }
+
+    @NotNull
+    private <R> Stream<R> stream(@NotNull String query, @NotNull Object[] parameters, @NotNull RowMapperFactory<R> mappers) {
+        if (shardRing == null) {
+            return openStream(metadata.getDataSourceId(), query, parameters, mappers).stream();
+        }
+        // Every shard streams on its own connection; rows are merged in the order they arrive.
+        List<Supplier<ResultSetIterator<R>>> sources = new ArrayList<>();
+        for (String shardId : shardRing.getShardIds()) {
+            sources.add(() -> openStream(shardId, query, parameters, mappers));
+        }
+        return new ScatterGatherIterator<>(sources).stream();
+    }
+
+    @NotNull
+    private <R> ResultSetIterator<R> openStream(@NotNull String dataSourceId, @NotNull String query, @NotNull Object[] parameters,
+                                                @NotNull RowMapperFactory<R> mappers) {
+        Connection connection = null;
+        PreparedStatement statement = null;
+        // Only the time until the first row is available is recorded; consuming the rows is up to the caller.
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            connection = getReadConnection(dataSourceId);
+            statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // Connector/J only streams rows one by one with this fetch size; otherwise the whole result is buffered.
+            statement.setFetchSize(connection.isWrapperFor(JdbcConnection.class) ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            ResultSet resultSet = statement.executeQuery();
+            ResultSetIterator.RowMapper<R> mapper = mappers.create(resultSet.getMetaData());
+            failed = false;
+            return new ResultSetIterator<>(connection, statement, resultSet, mapper);
+        } catch (SQLException e) {
+            closeQuietly(statement);
+            closeQuietly(connection);
+            throw new RuntimeException("Failed to stream " + metadata.getTableName() + ": " + query, e);
+        } catch (RuntimeException e) {
+            closeQuietly(statement);
+            closeQuietly(connection);
+            throw e;
+        } finally {
+            record(dataSourceId, Operation.STREAM, query, start, failed);
+        }
+    }
+
+    @Override
+    public boolean update(@NotNull T entity) {
+        ColumnMapper idMapper = requireIdMapper();
+        if (fullUpdate == null) {
+            return false;
+        }
+        BitSet columns = getUpdateColumns(entity);
+        if (columns != null && columns.isEmpty()) {
+            // Nothing changed since the entity was loaded or written, so the row is left alone.
+            return true;
+        }
+        if (writeBehind != null) {
+            writeBehind.add(entity, columns);
+            if (dirtyTracker != null) {
+                dirtyTracker.snapshot(entity);
+            }
+            return true;
+        }
+        UpdateStatement update = getUpdateStatement(columns);
+        String dataSourceId = getDataSourceId(entity);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getConnection(dataSourceId);
+             PreparedStatement statement = prepareWrite(connection, update.sql(), false)) {
+            update.bind(statement, idMapper, entity);
+            boolean updated = statement.executeUpdate() > 0;
+            failed = false;
+            afterUpdate(entity, updated);
+            return updated;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to update " + metadata.getTableName(), e);
+        } finally {
+            record(dataSourceId, Operation.UPDATE, update.sql(), start, failed);
+        }
+    }
+
+    @Override
+    public @NotNull BatchResult updateAll(@NotNull Collection<T> entities) {
+        requireIdMapper();
+        if (writeBehind != null && fullUpdate != null) {
+            for (T entity : entities) {
+                update(entity);
+            }
+            return new BatchResult(List.of());
+        }
+        return writeUpdates(entities);
+    }
+
+    @NotNull
+    private BatchResult writeUpdates(@NotNull Collection<T> entities) {
+        ColumnMapper idMapper = requireIdMapper();
+        if (fullUpdate == null || entities.isEmpty()) {
+            return new BatchResult(List.of());
+        }
+        // Entities on the same data source that changed the same columns share one batched statement.
+        Map<String, Map<UpdateStatement, List<T>>> groups = new LinkedHashMap<>();
+        for (T entity : entities) {
+            UpdateStatement update = getUpdateStatement(entity);
+            if (update != null) {
+                addToGroup(groups, entity, update);
+            }
+        }
+        return writeGroups(idMapper, groups);
+    }
+
+    // Buffered copies are not tracked themselves, so they carry the columns changed by the updates they stand for.
+    private void writeBuffered(@NotNull List<WriteBehindBuffer.Pending<T>> entries) {
+        ColumnMapper idMapper = requireIdMapper();
+        Map<String, Map<UpdateStatement, List<T>>> groups = new LinkedHashMap<>();
+        for (WriteBehindBuffer.Pending<T> entry : entries) {
+            addToGroup(groups, entry.entity(), getUpdateStatement(entry.columns()));
+        }
+        writeGroups(idMapper, groups);
+    }
+
+    private void addToGroup(@NotNull Map<String, Map<UpdateStatement, List<T>>> groups, @NotNull T entity, @NotNull UpdateStatement update) {
+        groups.computeIfAbsent(getDataSourceId(entity), x -> new LinkedHashMap<>())
+                .computeIfAbsent(update, x -> new ArrayList<>())
+                .add(entity);
+    }
+
+    @NotNull
+    private BatchResult writeGroups(@NotNull ColumnMapper idMapper, @NotNull Map<String, Map<UpdateStatement, List<T>>> groups) {
+        List<BatchResult.Chunk> chunks = new ArrayList<>();
+        for (Map.Entry<String, Map<UpdateStatement, List<T>>> dataSource : groups.entrySet()) {
+            String dataSourceId = dataSource.getKey();
+            try (Connection connection = getConnection(dataSourceId)) {
+                for (Map.Entry<UpdateStatement, List<T>> group : dataSource.getValue().entrySet()) {
+                    chunks.add(updateBatch(dataSourceId, connection, idMapper, group.getKey(), group.getValue()));
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to update " + metadata.getTableName(), e);
+            }
+        }
+        return new BatchResult(chunks);
+    }
+
+    @Override
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    // Writes what is still buffered and stops the background flushes.
+    public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+
+    @NotNull
+    private BatchResult.Chunk updateBatch(@NotNull String dataSourceId, @NotNull Connection connection, @NotNull ColumnMapper idMapper,
+                                          @NotNull UpdateStatement update, @NotNull List<T> entities) throws SQLException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        long estimatedBytes = 0;
+        try (PreparedStatement statement = prepareWrite(connection, update.sql(), false)) {
+            for (T entity : entities) {
+                update.bind(statement, idMapper, entity);
+                statement.addBatch();
+                for (ColumnMapper mapper : update.mappers()) {
+                    estimatedBytes += mapper.estimateSize(entity);
+                }
+            }
+            int[] counts = statement.executeBatch();
+            long affectedRows = 0;
+            for (int i = 0; i < counts.length; i++) {
+                // Rewritten batches report SUCCESS_NO_INFO rather than a count per row.
+                boolean updated = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+                affectedRows += Math.max(counts[i], 0);
+                afterUpdate(entities.get(i), updated);
+            }
+            failed = false;
+            return new BatchResult.Chunk(entities.size(), estimatedBytes, affectedRows, System.nanoTime() - start);
+        } finally {
+            record(dataSourceId, Operation.UPDATE_ALL, update.sql(), start, failed);
+        }
+    }
+
+    private void afterUpdate(@NotNull T entity, boolean updated) {
+        if (dirtyTracker != null && updated) {
+            dirtyTracker.snapshot(entity);
+        }
+        if (cache != null) {
+            if (updated && cache.isWriteThrough()) {
+                cache.put(entity);
+            } else {
+                cache.invalidateEntity(entity);
+            }
+        }
+    }
+
+    // Statement writing the entity's changed columns, or null when there are none.
+    @Nullable
+    private UpdateStatement getUpdateStatement(@NotNull T entity) {
+        BitSet columns = getUpdateColumns(entity);
+        return (columns != null && columns.isEmpty()) ? null : getUpdateStatement(columns);
+    }
+
+    // Update columns the entity changed, or null for all of them. Lazy columns that were never loaded are left out,
+    // as the entity does not know their values.
+    @Nullable
+    private BitSet getUpdateColumns(@NotNull T entity) {
+        BitSet columns = (dirtyTracker != null) ? dirtyTracker.getChangedColumns(entity) : null;
+        for (int index : lazyUpdateColumns) {
+            if (updateMappers[index].getColumn().get(entity) instanceof LazyColumn<?> lazy && !lazy.isLoaded()) {
+                if (columns == null) {
+                    columns = new BitSet(updateMappers.length);
+                    columns.set(0, updateMappers.length);
+                }
+                columns.clear(index);
+            }
+        }
+        return columns;
+    }
+
+    @NotNull
+    private UpdateStatement getUpdateStatement(@Nullable BitSet columns) {
+        return (columns == null || columns.cardinality() == updateMappers.length) ? Objects.requireNonNull(fullUpdate) : createUpdateStatement(columns);
+    }
+
+    // Statement setting only the given update columns, built once per combination.
+    @NotNull
+    private UpdateStatement createUpdateStatement(@NotNull BitSet columns) {
+        UpdateStatement cached = updateStatements.get(columns);
+        if (cached != null) {
+            return cached;
+        }
+        return updateStatements.computeIfAbsent(columns, x -> {
+            ColumnMapper[] included = columns.stream().mapToObj(i -> updateMappers[i]).toArray(ColumnMapper[]::new);
+            String sql = "UPDATE " + metadata.getTableName() + " SET "
+                    + Arrays.stream(included).map(mapper -> mapper.getColumn().getColumnName() + " = " + mapper.getPlaceholder()).collect(Collectors.joining(", "))
+                    + " WHERE " + metadata.requireIdColumn().getColumnName() + " = ?";
+            return new UpdateStatement(sql, included);
+        });
+    }
+
+    @Override
+    public boolean delete(@NotNull T entity) {
+        Object id = requireIdMapper().getColumn().get(entity);
+        if (id == null) {
+            throw new IllegalArgumentException("Entity " + metadata.getType().getName() + " has no id set");
+        }
+        if (dirtyTracker != null) {
+            dirtyTracker.forget(entity);
+        }
+        return deleteById(getDataSourceId(entity), id);
+    }
+
+    @Override
+    public boolean deleteById(@NotNull Object id) {
+        requireIdMapper();
+        String dataSourceId = getDataSourceIdById(id);
+        return (dataSourceId != null)
+                ? deleteById(dataSourceId, id)
+                : fanOut(shardId -> deleteById(shardId, id)).contains(true);
+    }
+
+    private boolean deleteById(@NotNull String dataSourceId, @NotNull Object id) {
+        if (writeBehind != null) {
+            writeBehind.remove(id);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(deleteSql)) {
+            requireIdMapper().bindValue(statement, 1, id);
+            boolean deleted = statement.executeUpdate() > 0;
+            failed = false;
+            if (cache != null) {
+                cache.invalidate(id);
+            }
+            return deleted;
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete from " + metadata.getTableName() + " by id " + id, e);
+        } finally {
+            record(dataSourceId, Operation.DELETE, deleteSql, start, failed);
+        }
+    }
+
+    @Override
+    public @Nullable EntityCache<T> getCache() {
+        return cache;
+    }
+
+    @NotNull
+    protected T map(@NotNull ResultSet resultSet) throws SQLException {
+        T entity = metadata.newInstance();
+        for (int i = 0; i < selectMappers.length; i++) {
+            selectMappers[i].read(resultSet, i + 1, entity);
+        }
+        for (LazyMapper<T> lazyMapper : lazyMappers) {
+            lazyMapper.defer(entity);
+        }
+        if (dirtyTracker != null) {
+            dirtyTracker.snapshot(entity);
+        }
+        return entity;
+    }
+
+    // Entity mappers in the order of the result's columns; columns without a field are skipped.
+    @NotNull
+    protected ColumnMapper[] getLayout(@NotNull ResultSetMetaData resultSetMetaData) throws SQLException {
+        ColumnMapper[] layout = new ColumnMapper[resultSetMetaData.getColumnCount()];
+        for (int i = 0; i < layout.length; i++) {
+            layout[i] = mappersByColumn.get(resultSetMetaData.getColumnLabel(i + 1).toLowerCase(Locale.ROOT));
+        }
+        return layout;
+    }
+
+    // Lazy columns the result leaves out, which are loaded on first access instead.
+    @NotNull
+    private List<LazyMapper<T>> getDeferredMappers(@NotNull ColumnMapper[] layout) {
+        List<ColumnMapper> selected = Arrays.asList(layout);
+        return lazyMappers.stream().filter(lazyMapper -> !selected.contains(lazyMapper)).toList();
+    }
+
+    @NotNull
+    private T map(@NotNull ResultSet resultSet, @NotNull ColumnMapper[] layout, @NotNull List<LazyMapper<T>> deferredMappers) throws SQLException {
+        T entity = metadata.newInstance();
+        for (int i = 0; i < layout.length; i++) {
+            if (layout[i] != null) {
+                layout[i].read(resultSet, i + 1, entity);
+            }
+        }
+        for (LazyMapper<T> lazyMapper : deferredMappers) {
+            lazyMapper.defer(entity);
+        }
+        if (dirtyTracker != null) {
+            dirtyTracker.snapshot(entity);
+        }
+        return entity;
+    }
+
+    int estimateSize(@NotNull T entity) {
+        long size = 0;
+        for (ColumnMapper mapper : mappers) {
+            size += mapper.estimateSize(entity);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    // Statements writing large objects are prepared on the server, which lets the driver send each stream in chunks.
+    @NotNull
+    PreparedStatement prepareWrite(@NotNull Connection connection, @NotNull String sql, boolean generatedKeys) throws SQLException {
+        if (largeObjects && connection.isWrapperFor(JdbcConnection.class)) {
+            JdbcConnection jdbcConnection = connection.unwrap(JdbcConnection.class);
+            return generatedKeys
+                    ? jdbcConnection.serverPrepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : jdbcConnection.serverPrepareStatement(sql);
+        }
+        return generatedKeys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
+    }
+
+    boolean hasLargeObjects() {
+        return largeObjects;
+    }
+
+    // Bytes [offset, offset + length) of a large object, offset starting at 1 as in SUBSTRING.
+    @NotNull
+    byte[] readChunk(@NotNull String dataSourceId, @NotNull Object id, @NotNull ColumnMetadata column, long offset, int length) throws SQLException {
+        ColumnMapper idMapper = requireIdMapper();
+        String sql = "SELECT SUBSTRING(" + column.getColumnName() + ", ?, ?) FROM " + metadata.getTableName()
+                + " WHERE " + idMapper.getColumn().getColumnName() + " = ?";
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, offset);
+            statement.setInt(2, length);
+            idMapper.bindValue(statement, 3, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new SQLException("Row with id " + id + " no longer exists in " + metadata.getTableName());
+                }
+                byte[] chunk = resultSet.getBytes(1);
+                failed = false;
+                return (chunk != null) ? chunk : new byte[0];
+            }
+        } finally {
+            record(dataSourceId, Operation.READ_CHUNK, sql, start, failed);
+        }
+    }
+
+    // Value of a @Lazy column, read by the entity's id when it is first accessed.
+    @Nullable
+    Object readLazyColumn(@NotNull T entity, @NotNull LazyMapper<T> mapper) {
+        Object id = requireIdMapper().getColumn().get(entity);
+        String fieldName = mapper.getColumn().getFieldName();
+        if (id == null) {
+            throw new IllegalStateException("Entity " + metadata.getType().getName() + " has no id set to load " + fieldName);
+        }
+        String dataSourceId = getDataSourceId(entity);
+        String sql = mapper.getSelectSql();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (Connection connection = getReadConnection(dataSourceId);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            requireIdMapper().bindValue(statement, 1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new IllegalStateException("Row with id " + id + " no longer exists in " + metadata.getTableName());
+                }
+                Object value = mapper.readValue(resultSet, 1);
+                failed = false;
+                return value;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load " + fieldName + " of " + metadata.getTableName(), e);
+        } finally {
+            record(dataSourceId, Operation.READ_COLUMN, sql, start, failed);
+        }
+    }
+
+    private static void closeQuietly(@Nullable AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // Already failing with the original exception.
+        }
+    }
+
+    @NotNull
+    protected Connection getConnection(@NotNull String dataSourceId) throws SQLException {
+        return sopra.getConnection(dataSourceId);
+    }
+
+    @NotNull
+    protected Connection getReadConnection(@NotNull String dataSourceId) throws SQLException {
+        return sopra.getReadConnection(dataSourceId);
+    }
+
+    void record(@NotNull String dataSourceId, @NotNull Operation operation, @NotNull String sql, long start, boolean failed) {
+        sopra.getMetrics().recordQuery(dataSourceId, metadata.getType(), operation, sql, System.nanoTime() - start, failed);
+    }
+
+    // The data source holding the entity's row: its shard when the entity is sharded.
+    @NotNull
+    String getDataSourceId(@NotNull T entity) {
+        if (shardRing == null) {
+            return metadata.getDataSourceId();
+        }
+        ColumnMetadata shardKeyColumn = Objects.requireNonNull(metadata.getShardKeyColumn());
+        Object key = shardKeyColumn.get(entity);
+        if (key == null) {
+            throw new IllegalArgumentException("Shard key " + shardKeyColumn.getFieldName() + " of " + metadata.getType().getName() + " is null");
+        }
+        return shardRing.getShard(key);
+    }
+
+    // Null when the id is not the shard key, in which case every shard has to be asked.
+    @Nullable
+    private String getDataSourceIdById(@NotNull Object id) {
+        if (shardRing == null) {
+            return metadata.getDataSourceId();
+        }
+        return (metadata.getShardKeyColumn() == metadata.getIdColumn()) ? shardRing.getShard(id) : null;
+    }
+
+    // Runs the query on every shard at once, one virtual thread each, and returns the results in shard order.
+    @NotNull
+    private <R> List<R> fanOut(@NotNull Function<String, R> query) {
+        List<String> shardIds = Objects.requireNonNull(shardRing).getShardIds();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<R>> futures = new ArrayList<>(shardIds.size());
+            for (String shardId : shardIds) {
+                futures.add(executor.submit(() -> query.apply(shardId)));
+            }
+            List<R> results = new ArrayList<>(futures.size());
+            for (Future<R> future : futures) {
+                results.add(await(future));
+            }
+            return results;
+        }
+    }
+
+    private static <R> R await(@NotNull Future<R> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to query shards", e.getCause());
+        }
+    }
+
+    @NotNull
+    private ColumnMapper requireIdMapper() {
+        if (idMapper == null) {
+            metadata.requireIdColumn();
+        }
+        return idMapper;
+    }
+
+    @NotNull
+    protected InsertStatement getInsertStatement(@NotNull T entity) {
+        return getInsertStatement(getOmittedColumns(entity));
+    }
+
+    @NotNull
+    InsertStatement getInsertStatement(long omittedColumns) {
+        return insertStatements.computeIfAbsent(omittedColumns, this::createInsertStatement);
+    }
+
+    long getOmittedColumns(@NotNull T entity) {
+        long omitted = 0;
+        for (int i = 0; i < optionalColumns.length; i++) {
+            ColumnMetadata column = mappers[optionalColumns[i]].getColumn();
+            if (isUnloaded(column, entity) || (hasDefault(column) && isUnset(column, entity))) {
+                omitted |= 1L << i;
+            }
+        }
+        return omitted;
+    }
+
+    private static boolean hasDefault(@NotNull ColumnMetadata column) {
+        return column.isAutoIncrement() || column.getDefaultValue() != null;
+    }
+
+    private static boolean isUnloaded(@NotNull ColumnMetadata column, @NotNull Object entity) {
+        return column.isLazy() && column.get(entity) instanceof LazyColumn<?> lazy && !lazy.isLoaded();
+    }
+
+    @NotNull
+    private InsertStatement createInsertStatement(long omitted) {
+        List<ColumnMapper> included = new ArrayList<>();
+        ColumnMapper generatedKey = null;
+        int optionalIndex = 0;
+        for (int i = 0; i < mappers.length; i++) {
+            boolean optional = optionalIndex < optionalColumns.length && optionalColumns[optionalIndex] == i;
+            if (optional && (omitted & (1L << optionalIndex++)) != 0) {
+                if (mappers[i].getColumn().isAutoIncrement()) {
+                    generatedKey = mappers[i];
+                }
+                continue;
+            }
+            included.add(mappers[i]);
+        }
+        String prefix = "INSERT INTO " + metadata.getTableName()
+                + " (" + included.stream().map(mapper -> mapper.getColumn().getColumnName()).collect(Collectors.joining(", ")) + ") VALUES ";
+        String placeholders = "(" + included.stream().map(ColumnMapper::getPlaceholder).collect(Collectors.joining(", ")) + ")";
+        return new InsertStatement(prefix, placeholders, included.toArray(new ColumnMapper[0]), generatedKey);
+    }
+
+    private static boolean isUnset(@NotNull ColumnMetadata column, @NotNull Object entity) {
+        Object value = column.get(entity);
+        if (value instanceof LazyColumn<?> lazy && lazy.isLoaded()) {
+            value = lazy.get();
+        }
+        if (value == null) {
+            return true;
+        }
+        return column.isAutoIncrement() && value instanceof Number number && number.longValue() == 0;
+    }
+
+    // Mapper of a query's rows, created once its result columns are known.
+    @FunctionalInterface
+    private interface RowMapperFactory<R> {
+
+        @NotNull
+        ResultSetIterator.RowMapper<R> create(@NotNull ResultSetMetaData resultSetMetaData) throws SQLException;
+
+    }
+
+    private record UpdateStatement(@NotNull String sql, @NotNull ColumnMapper[] mappers) {
+
+        void bind(@NotNull PreparedStatement statement, @NotNull ColumnMapper idMapper, @NotNull Object entity) throws SQLException {
+            for (int i = 0; i < mappers.length; i++) {
+                mappers[i].bind(statement, i + 1, entity);
+            }
+            idMapper.bind(statement, mappers.length + 1, entity);
+        }
+
+    }
+
+    protected record InsertStatement(@NotNull String prefix, @NotNull String placeholders, @NotNull ColumnMapper[] mappers,
+                                     @Nullable ColumnMapper generatedKey) {
+
+        @NotNull
+        String sql() {
+            return prefix + placeholders;
+        }
+
+        void bind(@NotNull PreparedStatement statement, @NotNull Object entity) throws SQLException {
+            bind(statement, 0, entity);
+        }
+
+        void bind(@NotNull PreparedStatement statement, int offset, @NotNull Object entity) throws SQLException {
+            for (int i = 0; i < mappers.length; i++) {
+                mappers[i].bind(statement, offset + i + 1, entity);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.annotations.WriteBehind;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metrics.SopraMetrics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Latest pending update per id. A background thread writes them once enough rows are pending or the interval passed.
+final class WriteBehindBuffer<T> {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    private final EntityMetadata<T> metadata;
+    private final ColumnMetadata idColumn;
+    private final SopraMetrics metrics;
+    private final Consumer<List<Pending<T>>> writer;
+    private final int maxPending;
+    private final Map<Object, Pending<T>> pending = new ConcurrentHashMap<>();
+    // Flushes never overlap, so an older copy of a row cannot be written after a newer one.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+
+    WriteBehindBuffer(@NotNull EntityMetadata<T> metadata, @NotNull WriteBehind settings, @NotNull SopraMetrics metrics,
+                      @NotNull Consumer<List<Pending<T>>> writer) {
+        this.metadata = metadata;
+        this.idColumn = metadata.requireIdColumn();
+        this.metrics = metrics;
+        this.writer = writer;
+        this.maxPending = Math.max(1, settings.maxPending());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("sopra-write-behind-" + metadata.getTableName()).factory());
+        long interval = Math.max(1, settings.flushIntervalMillis());
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        metrics.registerWriteBehind(metadata.getType(), pending::size);
+    }
+
+    // Columns are indexes of the repository's update columns to write, all of them when null.
+    void add(@NotNull T entity, @Nullable BitSet columns) {
+        Object id = idColumn.get(entity);
+        if (id == null) {
+            throw new IllegalArgumentException("Entity " + metadata.getType().getName() + " has no id set");
+        }
+        Pending<T> latest = new Pending<>(metadata.copy(entity), (columns != null) ? (BitSet) columns.clone() : null, System.nanoTime());
+        // The row keeps the time of its oldest unwritten update, so the lag covers every coalesced write, and the
+        // columns of all of them, since only the latest copy is written.
+        pending.merge(EntityMetadata.normalizeId(id), latest, (previous, next) ->
+                new Pending<>(next.entity(), union(previous.columns(), next.columns()), previous.since()));
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    flushRequested.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    // Copy of the pending update of a row, so reads see writes that were not flushed yet.
+    @Nullable
+    T get(@NotNull Object id) {
+        Pending<T> entry = pending.get(EntityMetadata.normalizeId(id));
+        return (entry != null) ? metadata.copy(entry.entity()) : null;
+    }
+
+    void remove(@NotNull Object id) {
+        pending.remove(EntityMetadata.normalizeId(id));
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<Map.Entry<Object, Pending<T>>> drained = new ArrayList<>(pending.size());
+            for (Object id : pending.keySet()) {
+                Pending<T> entry = pending.remove(id);
+                if (entry != null) {
+                    drained.add(Map.entry(id, entry));
+                }
+            }
+            List<Pending<T>> entries = new ArrayList<>(drained.size());
+            for (Map.Entry<Object, Pending<T>> entry : drained) {
+                entries.add(entry.getValue());
+            }
+            boolean failed = true;
+            try {
+                writer.accept(entries);
+                failed = false;
+            } catch (RuntimeException e) {
+                // Updates buffered while this flush ran are newer than the ones that failed, but the columns the failed
+                // ones changed must still be written along with them.
+                for (Map.Entry<Object, Pending<T>> entry : drained) {
+                    pending.merge(entry.getKey(), entry.getValue(), (newer, failedEntry) ->
+                            new Pending<>(newer.entity(), union(failedEntry.columns(), newer.columns()), failedEntry.since()));
+                }
+                throw e;
+            } finally {
+                long now = System.nanoTime();
+                for (Map.Entry<Object, Pending<T>> entry : drained) {
+                    metrics.recordFlushLag(metadata.getType(), now - entry.getValue().since(), failed);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Stops the background thread and writes what is left. Failures are thrown, since nothing retries them anymore.
+    void close() {
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Write-behind flush of {} did not finish within {} seconds", metadata.getTableName(), CLOSE_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to flush {} pending updates of {}, retrying with the next flush", pending.size(), metadata.getTableName(), e);
+        }
+    }
+
+    @Nullable
+    private static BitSet union(@Nullable BitSet first, @Nullable BitSet second) {
+        if (first == null || second == null) {
+            return null;
+        }
+        BitSet union = (BitSet) first.clone();
+        union.or(second);
+        return union;
+    }
+
+    record Pending<T>(@NotNull T entity, @Nullable BitSet columns, long since) { }
+
+}
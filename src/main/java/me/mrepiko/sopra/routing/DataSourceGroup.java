@@ -0,0 +1,94 @@
+package me.mrepiko.sopra.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A primary data source and its read replicas. Writes always go to the primary, reads are spread across the replicas.
+public final class DataSourceGroup {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final HikariDataSource primary;
+    @Getter
+    private final List<String> replicaIds;
+    @Getter
+    private final List<HikariDataSource> replicas;
+    private final ReadRouting readRouting;
+    private final long readYourWritesNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    // Last time any thread checked out a primary connection, 0 if never. Kept for the whole group rather than per
+    // thread, since async operations write and read on different virtual threads.
+    private final AtomicLong lastWrite = new AtomicLong();
+
+    public DataSourceGroup(@NotNull String id, @NotNull HikariDataSource primary, @NotNull Map<String, HikariDataSource> replicas,
+                           @NotNull ReadRouting readRouting, @NotNull Duration readYourWrites) {
+        this.id = id;
+        this.primary = primary;
+        this.replicaIds = List.copyOf(replicas.keySet());
+        this.replicas = List.copyOf(replicas.values());
+        this.readRouting = readRouting;
+        this.readYourWritesNanos = readYourWrites.toNanos();
+    }
+
+    @NotNull
+    public Connection getWriteConnection() throws SQLException {
+        if (readYourWritesNanos > 0 && !replicas.isEmpty()) {
+            lastWrite.set(System.nanoTime());
+        }
+        return primary.getConnection();
+    }
+
+    @NotNull
+    public Connection getReadConnection() throws SQLException {
+        if (replicas.isEmpty() || isSticky()) {
+            return primary.getConnection();
+        }
+        return selectReplica().getConnection();
+    }
+
+    // Replicas may lag behind the primary, so reads stay on the primary for a while after a write.
+    public boolean isSticky() {
+        if (readYourWritesNanos <= 0) {
+            return false;
+        }
+        long lastWrite = this.lastWrite.get();
+        return lastWrite != 0 && System.nanoTime() - lastWrite < readYourWritesNanos;
+    }
+
+    @NotNull
+    private HikariDataSource selectReplica() {
+        if (replicas.size() == 1) {
+            return replicas.get(0);
+        }
+        if (readRouting == ReadRouting.LEAST_CONNECTIONS) {
+            HikariDataSource selected = null;
+            int selectedLoad = Integer.MAX_VALUE;
+            for (HikariDataSource replica : replicas) {
+                int load = getLoad(replica);
+                if (load < selectedLoad) {
+                    selected = replica;
+                    selectedLoad = load;
+                }
+            }
+            return selected;
+        }
+        return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    private static int getLoad(@NotNull HikariDataSource dataSource) {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return (pool != null) ? pool.getActiveConnections() + pool.getThreadsAwaitingConnection() : 0;
+    }
+
+}
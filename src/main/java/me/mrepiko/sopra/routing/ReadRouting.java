@@ -0,0 +1,6 @@
+package me.mrepiko.sopra.routing;
+
+public enum ReadRouting {
+    ROUND_ROBIN,
+    LEAST_CONNECTIONS
+}
@@ -0,0 +1,93 @@
+package me.mrepiko.sopra.routing;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+// Consistent hash ring over the data sources of a shard group. Adding a shard only moves about 1/n of the keys.
+public final class ShardRing {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    @Getter
+    private final String id;
+    @Getter
+    private final List<String> shardIds;
+    private final long[] points;
+    private final String[] owners;
+
+    public ShardRing(@NotNull String id, @NotNull List<String> shardIds) {
+        if (shardIds.isEmpty()) {
+            throw new IllegalArgumentException("Shard group '" + id + "' has no shards");
+        }
+        this.id = id;
+        this.shardIds = List.copyOf(shardIds);
+
+        int size = this.shardIds.size() * VIRTUAL_NODES;
+        long[][] nodes = new long[size][2];
+        for (int shard = 0; shard < this.shardIds.size(); shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                int i = shard * VIRTUAL_NODES + node;
+                nodes[i][0] = hash((this.shardIds.get(shard) + "#" + node).getBytes(StandardCharsets.UTF_8));
+                nodes[i][1] = shard;
+            }
+        }
+        Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = nodes[i][0];
+            owners[i] = this.shardIds.get((int) nodes[i][1]);
+        }
+    }
+
+    @NotNull
+    public String getShard(@NotNull Object key) {
+        int index = Arrays.binarySearch(points, hash(toBytes(key)));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[(index == points.length) ? 0 : index];
+    }
+
+    // Keys must hash the same in every JVM, so Object.hashCode is not used. 1 and 1L map to the same shard.
+    @NotNull
+    private static byte[] toBytes(@NotNull Object key) {
+        if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(((Number) key).longValue()).array();
+        }
+        if (key instanceof UUID uuid) {
+            return ByteBuffer.allocate(2 * Long.BYTES).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+        }
+        if (key instanceof byte[] bytes) {
+            return bytes;
+        }
+        if (key instanceof Enum<?> value) {
+            return value.name().getBytes(StandardCharsets.UTF_8);
+        }
+        return key.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer, which spreads similar keys across the whole ring.
+    private static long hash(byte[] bytes) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,7 @@
+package me.mrepiko.sopra.schema;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+public record LiveColumn(@NotNull String name, @NotNull String columnType, boolean nullable, @Nullable String defaultValue,
+                         @NotNull String extra, int position) { }
@@ -0,0 +1,8 @@
+package me.mrepiko.sopra.schema;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+// Index as reported by INFORMATION_SCHEMA.STATISTICS. Columns are lower case; lengths are 0 for whole values.
+public record LiveIndex(@NotNull String name, boolean unique, @NotNull List<String> columns, @NotNull List<Integer> lengths) { }
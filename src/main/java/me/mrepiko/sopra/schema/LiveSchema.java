@@ -0,0 +1,84 @@
+package me.mrepiko.sopra.schema;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+public final class LiveSchema {
+
+    private static final String COLUMNS_QUERY = "SELECT TABLE_NAME, COLUMN_NAME, COLUMN_TYPE, IS_NULLABLE, COLUMN_DEFAULT, EXTRA, ORDINAL_POSITION "
+            + "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() ORDER BY TABLE_NAME, ORDINAL_POSITION";
+
+    private static final String INDEXES_QUERY = "SELECT TABLE_NAME, INDEX_NAME, NON_UNIQUE, COLUMN_NAME, SUB_PART "
+            + "FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_SCHEMA = DATABASE() ORDER BY TABLE_NAME, INDEX_NAME, SEQ_IN_INDEX";
+
+    private final Map<String, Map<String, LiveColumn>> tables;
+    private final Map<String, Map<String, LiveIndex>> indexes;
+
+    private LiveSchema(@NotNull Map<String, Map<String, LiveColumn>> tables, @NotNull Map<String, Map<String, LiveIndex>> indexes) {
+        this.tables = tables;
+        this.indexes = indexes;
+    }
+
+    public boolean hasTable(@NotNull String tableName) {
+        return tables.containsKey(tableName.toLowerCase(Locale.ROOT));
+    }
+
+    // Columns of the table keyed by lower case name, in ordinal order.
+    @Nullable
+    public Map<String, LiveColumn> getColumns(@NotNull String tableName) {
+        return tables.get(tableName.toLowerCase(Locale.ROOT));
+    }
+
+    // Indexes of the table keyed by lower case name, including the primary key.
+    @NotNull
+    public Map<String, LiveIndex> getIndexes(@NotNull String tableName) {
+        return indexes.getOrDefault(tableName.toLowerCase(Locale.ROOT), Map.of());
+    }
+
+    @NotNull
+    public static LiveSchema load(@NotNull Connection connection) throws SQLException {
+        Map<String, Map<String, LiveColumn>> tables = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(COLUMNS_QUERY)) {
+            while (resultSet.next()) {
+                String tableName = resultSet.getString(1).toLowerCase(Locale.ROOT);
+                LiveColumn column = new LiveColumn(
+                        resultSet.getString(2),
+                        resultSet.getString(3),
+                        "YES".equalsIgnoreCase(resultSet.getString(4)),
+                        resultSet.getString(5),
+                        Objects.requireNonNullElse(resultSet.getString(6), ""),
+                        resultSet.getInt(7)
+                );
+                tables.computeIfAbsent(tableName, x -> new LinkedHashMap<>()).put(column.name().toLowerCase(Locale.ROOT), column);
+            }
+        }
+        return new LiveSchema(tables, loadIndexes(connection));
+    }
+
+    @NotNull
+    private static Map<String, Map<String, LiveIndex>> loadIndexes(@NotNull Connection connection) throws SQLException {
+        Map<String, Map<String, LiveIndex>> indexes = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(INDEXES_QUERY)) {
+            while (resultSet.next()) {
+                String tableName = resultSet.getString(1).toLowerCase(Locale.ROOT);
+                String indexName = resultSet.getString(2);
+                boolean unique = resultSet.getInt(3) == 0;
+                // Rows arrive in column order, so the lists are filled while the index is read.
+                LiveIndex index = indexes.computeIfAbsent(tableName, x -> new LinkedHashMap<>()).computeIfAbsent(indexName.toLowerCase(Locale.ROOT),
+                        x -> new LiveIndex(indexName, unique, new ArrayList<>(), new ArrayList<>()));
+                index.columns().add(resultSet.getString(4).toLowerCase(Locale.ROOT));
+                index.lengths().add(resultSet.getInt(5));
+            }
+        }
+        return indexes;
+    }
+
+}
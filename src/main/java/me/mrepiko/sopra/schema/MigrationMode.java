@@ -0,0 +1,7 @@
+package me.mrepiko.sopra.schema;
+
+public enum MigrationMode {
+    APPLY,
+    DRY_RUN,
+    DISABLED
+}
@@ -0,0 +1,73 @@
+package me.mrepiko.sopra.schema;
+
+import lombok.Getter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Getter
+public final class MigrationPlan {
+
+    private final String tableName;
+    private final List<MigrationStep> steps;
+    // Live columns without a matching field. They are reported but never dropped.
+    private final List<String> unmappedColumns;
+
+    public MigrationPlan(@NotNull String tableName, @NotNull List<MigrationStep> steps, @NotNull List<String> unmappedColumns) {
+        this.tableName = tableName;
+        this.steps = List.copyOf(steps);
+        this.unmappedColumns = List.copyOf(unmappedColumns);
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    public boolean rebuildsTable() {
+        return steps.stream().anyMatch(MigrationStep::rebuildsTable);
+    }
+
+    @NotNull
+    public MigrationStep.Algorithm getAlgorithm() {
+        MigrationStep.Algorithm algorithm = MigrationStep.Algorithm.INSTANT;
+        for (MigrationStep step : steps) {
+            if (step.algorithm().compareTo(algorithm) > 0) {
+                algorithm = step.algorithm();
+            }
+        }
+        return algorithm;
+    }
+
+    // The single ALTER TABLE statement, with the least disruptive algorithm first and the server's own choice last.
+    @NotNull
+    public List<String> getStatements() {
+        String alter = "ALTER TABLE " + tableName + " " + steps.stream().map(MigrationStep::clause).collect(Collectors.joining(", "));
+        List<String> statements = new ArrayList<>();
+        MigrationStep.Algorithm algorithm = getAlgorithm();
+        if (algorithm == MigrationStep.Algorithm.INSTANT) {
+            statements.add(alter + ", ALGORITHM=INSTANT");
+        }
+        if (algorithm != MigrationStep.Algorithm.COPY) {
+            statements.add(alter + ", ALGORITHM=INPLACE, LOCK=NONE");
+        }
+        statements.add(alter);
+        return statements;
+    }
+
+    @NotNull
+    public String describe() {
+        StringBuilder builder = new StringBuilder("Migration plan for table ").append(tableName)
+                .append(" (").append(getAlgorithm()).append(rebuildsTable() ? ", rebuilds table" : "").append("):");
+        for (MigrationStep step : steps) {
+            builder.append("\n  ").append(step);
+        }
+        for (String column : unmappedColumns) {
+            builder.append("\n  column ").append(column).append(" has no matching field and is left untouched");
+        }
+        builder.append("\n  ").append(getStatements().get(0));
+        return builder.toString();
+    }
+
+}
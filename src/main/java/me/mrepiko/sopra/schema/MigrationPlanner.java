@@ -0,0 +1,198 @@
+package me.mrepiko.sopra.schema;
+
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.GeneratedColumnMetadata;
+import me.mrepiko.sopra.metadata.IndexMetadata;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class MigrationPlanner {
+
+    private static final Pattern VARCHAR = Pattern.compile("^varchar\\((\\d+)\\)$");
+    // utf8mb4 needs up to four bytes per character; above 255 bytes VARCHAR needs a two byte length prefix.
+    private static final int MAX_CHARACTER_BYTES = 4;
+    private static final int SINGLE_BYTE_LENGTH_LIMIT = 255;
+    private static final int SINGLE_BYTE_ENUM_LIMIT = 255;
+    // MySQL reports string literals in expression defaults with their character set, as in _utf8mb4\'[]\'.
+    private static final Pattern CHARSET_INTRODUCER = Pattern.compile("^_[a-z0-9]+\\\\'(.*)\\\\'$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FUNCTION_CALL = Pattern.compile("^[a-z_][a-z0-9_]*\\(.*\\)$", Pattern.CASE_INSENSITIVE);
+    private static final Set<String> KEYWORD_DEFAULTS = Set.of(
+            "current_timestamp", "current_date", "current_time", "localtime", "localtimestamp", "current_user"
+    );
+
+    private MigrationPlanner() { }
+
+    @NotNull
+    public static MigrationPlan plan(@NotNull TableSchema table, @NotNull Map<String, LiveColumn> liveColumns, @NotNull Map<String, LiveIndex> liveIndexes) {
+        List<MigrationStep> steps = new ArrayList<>();
+        Set<String> mappedColumns = new HashSet<>();
+        for (ColumnMetadata column : table.getMetadata().getColumns()) {
+            String key = column.getColumnName().toLowerCase(Locale.ROOT);
+            mappedColumns.add(key);
+            LiveColumn liveColumn = liveColumns.get(key);
+            MigrationStep step = (liveColumn == null) ? addColumn(column) : modifyColumn(column, liveColumn);
+            if (step != null) {
+                steps.add(step);
+            }
+        }
+
+        // Existing generated columns are left as they are; changing their expression means dropping them by hand.
+        for (GeneratedColumnMetadata column : table.getMetadata().getGeneratedColumns()) {
+            String key = column.columnName().toLowerCase(Locale.ROOT);
+            mappedColumns.add(key);
+            if (!liveColumns.containsKey(key)) {
+                steps.add(new MigrationStep(MigrationStep.Kind.ADD_COLUMN, column.columnName(), "ADD COLUMN " + TableSchema.generatedColumnDefinition(column),
+                        MigrationStep.Algorithm.INSTANT, false, "new generated column"));
+                if (column.indexed()) {
+                    steps.add(new MigrationStep(MigrationStep.Kind.ADD_INDEX, column.columnName(), "ADD " + TableSchema.indexDefinition(column),
+                            MigrationStep.Algorithm.INPLACE, false, "new index"));
+                }
+            }
+        }
+
+        // Indexes are matched by definition rather than name, so constraints the server named itself are recognized.
+        // An index whose name is taken by a different definition is left alone, since Sopra never drops indexes.
+        for (IndexMetadata index : table.getMetadata().getIndexes()) {
+            if (!hasIndex(index, liveIndexes) && !liveIndexes.containsKey(index.name().toLowerCase(Locale.ROOT))) {
+                steps.add(new MigrationStep(MigrationStep.Kind.ADD_INDEX, index.name(), "ADD " + TableSchema.indexDefinition(index),
+                        MigrationStep.Algorithm.INPLACE, false, index.unique() ? "new unique constraint" : "new index"));
+            }
+        }
+
+        List<String> unmappedColumns = new ArrayList<>();
+        for (Map.Entry<String, LiveColumn> entry : liveColumns.entrySet()) {
+            if (!mappedColumns.contains(entry.getKey())) {
+                unmappedColumns.add(entry.getValue().name());
+            }
+        }
+        return new MigrationPlan(table.getTableName(), steps, unmappedColumns);
+    }
+
+    private static boolean hasIndex(@NotNull IndexMetadata index, @NotNull Map<String, LiveIndex> liveIndexes) {
+        List<String> columns = index.columns().stream().map(column -> column.toLowerCase(Locale.ROOT)).toList();
+        for (LiveIndex liveIndex : liveIndexes.values()) {
+            if (liveIndex.unique() == index.unique() && liveIndex.columns().equals(columns) && liveIndex.lengths().equals(index.lengths())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NotNull
+    private static MigrationStep addColumn(@NotNull ColumnMetadata column) {
+        String clause = "ADD COLUMN " + TableSchema.columnDefinition(column, false);
+        if (column.isAutoIncrement()) {
+            return new MigrationStep(MigrationStep.Kind.ADD_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.COPY, true, "new auto increment column");
+        }
+        return new MigrationStep(MigrationStep.Kind.ADD_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.INSTANT, false, "new column");
+    }
+
+    @Nullable
+    private static MigrationStep modifyColumn(@NotNull ColumnMetadata column, @NotNull LiveColumn liveColumn) {
+        String clause = "MODIFY COLUMN " + TableSchema.columnDefinition(column, false);
+        String expectedType = SqlTypes.normalize(column.getSqlType());
+        String liveType = SqlTypes.normalize(liveColumn.columnType());
+
+        if (!expectedType.equals(liveType) && !isJsonAlias(liveType, expectedType)) {
+            String reason = "type " + liveColumn.columnType() + " -> " + column.getSqlType();
+            if (isVarcharExtension(liveType, expectedType) && column.isNullable() == liveColumn.nullable()) {
+                return new MigrationStep(MigrationStep.Kind.MODIFY_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.INPLACE, false, reason);
+            }
+            if (isEnumExtension(liveType, expectedType) && column.isNullable() == liveColumn.nullable()) {
+                return new MigrationStep(MigrationStep.Kind.MODIFY_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.INSTANT, false, reason);
+            }
+            return new MigrationStep(MigrationStep.Kind.MODIFY_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.COPY, true, reason);
+        }
+        if (column.isAutoIncrement() != liveColumn.extra().toLowerCase(Locale.ROOT).contains("auto_increment")) {
+            return new MigrationStep(MigrationStep.Kind.MODIFY_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.COPY, true, "auto increment changed");
+        }
+        if (column.isNullable() != liveColumn.nullable()) {
+            String reason = liveColumn.nullable() ? "NULL -> NOT NULL" : "NOT NULL -> NULL";
+            return new MigrationStep(MigrationStep.Kind.MODIFY_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.INPLACE, true, reason);
+        }
+        boolean defaultChanged = !Objects.equals(normalizeDefault(column.getDefaultValue(), column.getSqlType()),
+                normalizeDefault(liveColumn.defaultValue(), liveColumn.columnType()));
+        boolean onUpdateChanged = (column.getOnUpdate() != null) != liveColumn.extra().toLowerCase(Locale.ROOT).contains("on update");
+        if (defaultChanged || onUpdateChanged) {
+            return new MigrationStep(MigrationStep.Kind.MODIFY_COLUMN, column.getColumnName(), clause, MigrationStep.Algorithm.INSTANT, false,
+                    defaultChanged ? "default changed" : "on update changed");
+        }
+        return null;
+    }
+
+    // MariaDB reports JSON columns as LONGTEXT. Existing LONGTEXT columns on MySQL are kept too, rather than copying the table.
+    private static boolean isJsonAlias(@NotNull String liveType, @NotNull String expectedType) {
+        return expectedType.equals("json") && liveType.equals("longtext");
+    }
+
+    // Extending a VARCHAR is done in place as long as its length prefix keeps the same size.
+    private static boolean isVarcharExtension(@NotNull String liveType, @NotNull String expectedType) {
+        Matcher live = VARCHAR.matcher(liveType);
+        Matcher expected = VARCHAR.matcher(expectedType);
+        if (!live.matches() || !expected.matches()) {
+            return false;
+        }
+        int liveLength = Integer.parseInt(live.group(1));
+        int expectedLength = Integer.parseInt(expected.group(1));
+        return expectedLength >= liveLength
+                && (liveLength * MAX_CHARACTER_BYTES <= SINGLE_BYTE_LENGTH_LIMIT) == (expectedLength * MAX_CHARACTER_BYTES <= SINGLE_BYTE_LENGTH_LIMIT);
+    }
+
+    // Appending members to an ENUM only changes metadata, as long as the number of members still fits the same storage size.
+    private static boolean isEnumExtension(@NotNull String liveType, @NotNull String expectedType) {
+        if (!liveType.startsWith("enum(") || !liveType.endsWith(")") || !expectedType.startsWith("enum(")) {
+            return false;
+        }
+        String prefix = liveType.substring(0, liveType.length() - 1) + ",";
+        return expectedType.startsWith(prefix)
+                && (countEnumMembers(liveType) <= SINGLE_BYTE_ENUM_LIMIT) == (countEnumMembers(expectedType) <= SINGLE_BYTE_ENUM_LIMIT);
+    }
+
+    private static int countEnumMembers(@NotNull String enumType) {
+        return enumType.split("','", -1).length;
+    }
+
+    // INFORMATION_SCHEMA reports defaults differently across MySQL and MariaDB versions ('x' vs x, CURRENT_TIMESTAMP vs current_timestamp()).
+    // Literals keep their case. MySQL reports string literals unquoted, so on character columns only keywords and function
+    // calls are treated as expressions and lowercased.
+    @Nullable
+    static String normalizeDefault(@Nullable String value, @NotNull String sqlType) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim();
+        while (normalized.length() >= 2 && normalized.startsWith("(") && normalized.endsWith(")")) {
+            normalized = normalized.substring(1, normalized.length() - 1).trim();
+        }
+        if (normalized.equalsIgnoreCase("null")) {
+            return null;
+        }
+        Matcher introducer = CHARSET_INTRODUCER.matcher(normalized);
+        if (introducer.matches()) {
+            normalized = "'" + introducer.group(1).replace("\\'", "''") + "'";
+        }
+        if (normalized.length() >= 2 && normalized.startsWith("'") && normalized.endsWith("'")) {
+            return normalized.substring(1, normalized.length() - 1).replace("''", "'");
+        }
+        String lowerCase = normalized.toLowerCase(Locale.ROOT);
+        boolean expression = KEYWORD_DEFAULTS.contains(lowerCase) || FUNCTION_CALL.matcher(normalized).matches();
+        if (SqlTypes.isCharacterType(sqlType) && !expression) {
+            return normalized;
+        }
+        if (lowerCase.endsWith("()")) {
+            lowerCase = lowerCase.substring(0, lowerCase.length() - 2);
+        }
+        if (lowerCase.equals("true")) {
+            return "1";
+        }
+        if (lowerCase.equals("false")) {
+            return "0";
+        }
+        return lowerCase;
+    }
+
+}
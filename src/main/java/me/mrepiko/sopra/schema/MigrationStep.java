@@ -0,0 +1,26 @@
+package me.mrepiko.sopra.schema;
+
+import org.jetbrains.annotations.NotNull;
+
+public record MigrationStep(@NotNull Kind kind, @NotNull String columnName, @NotNull String clause, @NotNull Algorithm algorithm,
+                            boolean rebuildsTable, @NotNull String reason) {
+
+    public enum Kind {
+        ADD_COLUMN,
+        MODIFY_COLUMN,
+        ADD_INDEX
+    }
+
+    // Ordered from least to most disruptive.
+    public enum Algorithm {
+        INSTANT,
+        INPLACE,
+        COPY
+    }
+
+    @Override
+    public String toString() {
+        return clause + " [" + algorithm + (rebuildsTable ? ", rebuilds table" : "") + "] " + reason;
+    }
+
+}
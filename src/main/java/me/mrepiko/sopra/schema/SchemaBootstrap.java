@@ -0,0 +1,136 @@
+package me.mrepiko.sopra.schema;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class SchemaBootstrap {
+
+    private final Logger LOGGER = LoggerFactory.getLogger(SchemaBootstrap.class);
+    private final MigrationMode migrationMode;
+    private final boolean allowCopyMigrations;
+
+    public SchemaBootstrap(@NotNull MigrationMode migrationMode, boolean allowCopyMigrations) {
+        this.migrationMode = migrationMode;
+        this.allowCopyMigrations = allowCopyMigrations;
+    }
+
+    // Sets up the tables of every data source in parallel, one virtual thread and one connection per data source.
+    public void run(@NotNull Map<String, ? extends DataSource> dataSources, @NotNull Map<String, List<TableSchema>> tables) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<TableSchema>> entry : tables.entrySet()) {
+                DataSource dataSource = dataSources.get(entry.getKey());
+                if (dataSource == null || entry.getValue().isEmpty()) {
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    bootstrap(entry.getKey(), dataSource, entry.getValue());
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        }
+    }
+
+    public void bootstrap(@NotNull String dataSourceId, @NotNull DataSource dataSource, @NotNull List<TableSchema> tables) {
+        long start = System.nanoTime();
+        int created = 0;
+        int unchanged = 0;
+        int migrated = 0;
+        int outdated = 0;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            LiveSchema liveSchema = LiveSchema.load(connection);
+            for (TableSchema table : tables) {
+                Map<String, LiveColumn> liveColumns = liveSchema.getColumns(table.getTableName());
+                if (liveColumns == null) {
+                    execute(statement, table.getCreateTableSql());
+                    created++;
+                    continue;
+                }
+                MigrationPlan plan = MigrationPlanner.plan(table, liveColumns, liveSchema.getIndexes(table.getTableName()));
+                if (plan.isEmpty()) {
+                    unchanged++;
+                } else if (migrationMode == MigrationMode.APPLY && plan.rebuildsTable() && !allowCopyMigrations) {
+                    LOGGER.warn("[Skipped, copy migrations not allowed] {}", plan.describe());
+                    outdated++;
+                } else if (migrationMode == MigrationMode.APPLY) {
+                    LOGGER.info("{}", plan.describe());
+                    if (migrate(statement, plan)) {
+                        migrated++;
+                    } else {
+                        outdated++;
+                    }
+                } else if (migrationMode == MigrationMode.DRY_RUN) {
+                    LOGGER.info("[Dry run] {}", plan.describe());
+                    outdated++;
+                } else {
+                    LOGGER.warn("Table {} on data source {} does not match entity {}", table.getTableName(), dataSourceId, table.getMetadata().getType().getName());
+                    outdated++;
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to set up tables for data source with ID: " + dataSourceId, e);
+        }
+        LOGGER.info("Tables for data source {} set up in {} ms ({} created, {} migrated, {} unchanged, {} outdated)",
+                dataSourceId, (System.nanoTime() - start) / 1_000_000, created, migrated, unchanged, outdated);
+    }
+
+    // Tries the least disruptive algorithm first and falls back when the server refuses it for this change.
+    // The last statement leaves the algorithm to the server, which may copy the table, so it needs the same opt-in.
+    private boolean migrate(@NotNull Statement statement, @NotNull MigrationPlan plan) {
+        List<String> statements = plan.getStatements();
+        for (int i = 0; i < statements.size() - 1; i++) {
+            try {
+                statement.execute(statements.get(i));
+                return true;
+            } catch (SQLException e) {
+                LOGGER.debug("Server rejected {}: {}", statements.get(i), e.getMessage());
+            }
+        }
+        if (statements.size() > 1 && !allowCopyMigrations) {
+            LOGGER.warn("Server rejected an online ALTER for table {} and copy migrations are not allowed", plan.getTableName());
+            return false;
+        }
+        execute(statement, statements.get(statements.size() - 1));
+        return true;
+    }
+
+    private static void execute(@NotNull Statement statement, @NotNull String query) {
+        try {
+            statement.execute(query);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to execute query: " + query, e);
+        }
+    }
+
+    private static void await(@NotNull Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while setting up tables", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Failed to set up tables", e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package me.mrepiko.sopra.schema;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+public final class SqlTypes {
+
+    private static final Pattern INTEGER_DISPLAY_WIDTH = Pattern.compile("^(tinyint|smallint|mediumint|int|bigint)\\(\\d+\\)");
+
+    private static final Set<String> EXPRESSION_DEFAULT_TYPES = Set.of(
+            "json", "tinytext", "text", "mediumtext", "longtext", "tinyblob", "blob", "mediumblob", "longblob"
+    );
+
+    private static final List<String> CHARACTER_TYPE_PREFIXES = List.of(
+            "char", "varchar", "tinytext", "text", "mediumtext", "longtext", "enum(", "set("
+    );
+
+    private SqlTypes() { }
+
+    public static boolean isCharacterType(@NotNull String sqlType) {
+        String type = normalize(sqlType);
+        for (String prefix : CHARACTER_TYPE_PREFIXES) {
+            if (type.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // MySQL only accepts defaults of these types as expressions, DEFAULT ('[]') rather than DEFAULT '[]'.
+    public static boolean requiresExpressionDefault(@NotNull String sqlType) {
+        return EXPRESSION_DEFAULT_TYPES.contains(normalize(sqlType));
+    }
+
+    // Brings a declared type and an INFORMATION_SCHEMA.COLUMNS.COLUMN_TYPE value into the same form.
+    // ENUM and SET members are compared as they are, since MySQL keeps their case.
+    @NotNull
+    public static String normalize(@NotNull String sqlType) {
+        String type = lowerCaseUnquoted(sqlType.trim());
+        if (type.equals("boolean") || type.equals("bool") || type.equals("tinyint(1)")) {
+            return "tinyint(1)";
+        }
+        if (type.startsWith("integer")) {
+            type = "int" + type.substring("integer".length());
+        }
+        return INTEGER_DISPLAY_WIDTH.matcher(type).replaceFirst("$1");
+    }
+
+    // Lowercases everything outside quoted members and drops the whitespace MySQL leaves out, as in decimal(10, 2).
+    @NotNull
+    private static String lowerCaseUnquoted(@NotNull String sqlType) {
+        StringBuilder builder = new StringBuilder(sqlType.length());
+        boolean quoted = false;
+        for (int i = 0; i < sqlType.length(); i++) {
+            char c = sqlType.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+                builder.append(c);
+            } else if (quoted) {
+                builder.append(c);
+            } else if (Character.isWhitespace(c)) {
+                char last = builder.isEmpty() ? ' ' : builder.charAt(builder.length() - 1);
+                if (last != ' ' && last != '(' && last != ',') {
+                    builder.append(' ');
+                }
+            } else {
+                if ((c == ',' || c == '(' || c == ')') && !builder.isEmpty() && builder.charAt(builder.length() - 1) == ' ') {
+                    builder.setLength(builder.length() - 1);
+                }
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+}
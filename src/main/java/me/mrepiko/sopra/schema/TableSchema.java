@@ -0,0 +1,110 @@
+package me.mrepiko.sopra.schema;
+
+import lombok.Getter;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.GeneratedColumnMetadata;
+import me.mrepiko.sopra.metadata.IndexMetadata;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public final class TableSchema {
+
+    private final EntityMetadata<?> metadata;
+    private final String createTableSql;
+
+    public TableSchema(@NotNull EntityMetadata<?> metadata) {
+        this.metadata = metadata;
+        this.createTableSql = buildCreateTableSql();
+    }
+
+    @NotNull
+    public String getTableName() {
+        return metadata.getTableName();
+    }
+
+    @NotNull
+    public static String columnDefinition(@NotNull ColumnMetadata column, boolean inlinePrimaryKey) {
+        StringBuilder definition = new StringBuilder();
+        definition.append(column.getColumnName()).append(" ").append(column.getSqlType());
+        if (column.isId()) {
+            if (inlinePrimaryKey) {
+                definition.append(" PRIMARY KEY");
+            }
+            if (column.isAutoIncrement()) {
+                definition.append(" AUTO_INCREMENT");
+            }
+        }
+
+        if (!column.isNullable()) {
+            definition.append(" NOT NULL");
+        } else {
+            definition.append(" NULL");
+        }
+
+        if (column.getDefaultValue() != null) {
+            String defaultValue = column.getDefaultValue();
+            if (SqlTypes.requiresExpressionDefault(column.getSqlType()) && !defaultValue.startsWith("(")) {
+                defaultValue = "(" + defaultValue + ")";
+            }
+            definition.append(" DEFAULT ").append(defaultValue);
+        }
+        if (column.getOnUpdate() != null) {
+            definition.append(" ON UPDATE ").append(column.getOnUpdate());
+        }
+        return definition.toString();
+    }
+
+    @NotNull
+    public static String generatedColumnDefinition(@NotNull GeneratedColumnMetadata column) {
+        return column.columnName() + " " + column.sqlType() + " AS (" + column.expression() + ") VIRTUAL";
+    }
+
+    @NotNull
+    public static String indexDefinition(@NotNull GeneratedColumnMetadata column) {
+        return "INDEX " + column.getIndexName() + " (" + column.columnName() + ")";
+    }
+
+    @NotNull
+    public static String indexDefinition(@NotNull IndexMetadata index) {
+        List<String> parts = new ArrayList<>();
+        for (int i = 0; i < index.columns().size(); i++) {
+            int length = index.lengths().get(i);
+            parts.add((length > 0) ? index.columns().get(i) + "(" + length + ")" : index.columns().get(i));
+        }
+        return (index.unique() ? "UNIQUE INDEX " : "INDEX ") + index.name() + " (" + String.join(", ", parts) + ")";
+    }
+
+    @NotNull
+    private String buildCreateTableSql() {
+        StringBuilder query = new StringBuilder("CREATE TABLE IF NOT EXISTS " + metadata.getTableName() + " (\n");
+        for (ColumnMetadata column : metadata.getColumns()) {
+            query.append("  ").append(columnDefinition(column, true)).append(",\n");
+        }
+        for (GeneratedColumnMetadata column : metadata.getGeneratedColumns()) {
+            query.append("  ").append(generatedColumnDefinition(column)).append(",\n");
+        }
+
+        if (!metadata.getPrimaryKeyColumns().isEmpty()) {
+            query.append("  PRIMARY KEY (").append(String.join(", ", metadata.getPrimaryKeyColumns())).append("),\n");
+        }
+
+        for (IndexMetadata index : metadata.getIndexes()) {
+            query.append("  ").append(indexDefinition(index)).append(",\n");
+        }
+
+        for (GeneratedColumnMetadata column : metadata.getGeneratedColumns()) {
+            if (column.indexed()) {
+                query.append("  ").append(indexDefinition(column)).append(",\n");
+            }
+        }
+
+        query.setLength(query.length() - 2);
+        query.append("\n);");
+        return query.toString();
+    }
+
+}
@@ -0,0 +1,89 @@
+package me.mrepiko.sopra.cache;
+
+import me.mrepiko.sopra.annotations.Cached;
+import me.mrepiko.sopra.annotations.Id;
+import me.mrepiko.sopra.annotations.Lazy;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.codec.LazyColumn;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntityCacheTest {
+
+    private static final EntityMetadataRegistry REGISTRY = new EntityMetadataRegistry(null);
+
+    @Test
+    void sharesNoMutableValues() {
+        EntityMetadata<Profile> metadata = REGISTRY.get(Profile.class);
+        EntityCache<Profile> cache = new EntityCache<>(metadata, Profile.class.getAnnotation(Cached.class), profile -> 1);
+        Profile profile = new Profile();
+        profile.id = 1;
+        profile.tags = new ArrayList<>(List.of("a"));
+        profile.settings = new HashMap<>(Map.of("theme", "dark"));
+        profile.avatar = new byte[] {1, 2};
+        profile.address = new Address();
+        profile.address.city = "Oslo";
+        cache.put(profile);
+
+        profile.tags.add("b");
+        profile.settings.put("theme", "light");
+        profile.avatar[0] = 9;
+        profile.address.city = "Bergen";
+
+        Profile cached = cache.get(1L);
+        assertNotNull(cached);
+        assertEquals(List.of("a"), cached.tags);
+        assertEquals(Map.of("theme", "dark"), cached.settings);
+        assertArrayEquals(new byte[] {1, 2}, cached.avatar);
+        assertEquals("Oslo", cached.address.city);
+
+        cached.tags.add("c");
+        cached.address.city = "Bergen";
+        Profile again = cache.get(1L);
+        assertNotNull(again);
+        assertEquals(List.of("a"), again.tags);
+        assertEquals("Oslo", again.address.city);
+    }
+
+    @Test
+    void rejectsLazyColumns() {
+        EntityMetadata<Document> metadata = REGISTRY.get(Document.class);
+        assertThrows(IllegalStateException.class, () -> new EntityCache<>(metadata, Document.class.getAnnotation(Cached.class), document -> 1));
+    }
+
+    public static class Address {
+        public String city;
+    }
+
+    @Cached
+    @SopraTable(dataSourceId = "test", name = "profiles")
+    static class Profile {
+        @Id
+        public long id;
+        public List<String> tags;
+        public Map<String, String> settings;
+        public byte[] avatar;
+        public Address address;
+    }
+
+    @Cached
+    @SopraTable(dataSourceId = "test", name = "documents")
+    static class Document {
+        @Id
+        public long id;
+        @Lazy
+        public LazyColumn<String> body;
+    }
+
+}
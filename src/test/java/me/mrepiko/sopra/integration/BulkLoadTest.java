@@ -0,0 +1,163 @@
+package me.mrepiko.sopra.integration;
+
+import me.mrepiko.sopra.DatabaseCredentials;
+import me.mrepiko.sopra.SopraApi;
+import me.mrepiko.sopra.annotations.Default;
+import me.mrepiko.sopra.annotations.Id;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.repository.BatchResult;
+import me.mrepiko.sopra.repository.LoadProgress;
+import me.mrepiko.sopra.repository.LongObjectMap;
+import me.mrepiko.sopra.repository.Repository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Runs against a MySQL server only when -Dsopra.test.host (and optionally .port, .user, .password) is set.
+@EnabledIfSystemProperty(named = "sopra.test.host", matches = ".+")
+class BulkLoadTest {
+
+    private static final String DATA_SOURCE_ID = "test";
+    private static final String DATABASE_NAME = "sopra_test";
+    private static final int ROWS = 20_000;
+
+    private static DatabaseCredentials credentials;
+    private static SopraApi sopra;
+    private static Repository<LoadedRow> repository;
+
+    @BeforeAll
+    static void connect() {
+        String host = System.getProperty("sopra.test.host");
+        int port = Integer.getInteger("sopra.test.port", 3306);
+        String user = System.getProperty("sopra.test.user", "root");
+        String password = System.getProperty("sopra.test.password", "");
+        credentials = new DatabaseCredentials(DATA_SOURCE_ID, host, port, DATABASE_NAME, user, password);
+        execute("", "DROP DATABASE IF EXISTS " + DATABASE_NAME);
+        execute("", "CREATE DATABASE " + DATABASE_NAME);
+        sopra = SopraApi.Builder.create(BulkLoadTest.class)
+                .setCredentials(credentials)
+                .setDataSourceClassName("com.mysql.cj.jdbc.MysqlDataSource")
+                .setBulkLoadEnabled(true)
+                .setMetricsEnabled(false)
+                .build();
+        repository = sopra.getRepository(LoadedRow.class);
+    }
+
+    @AfterAll
+    static void close() {
+        if (sopra != null) {
+            sopra.close();
+        }
+    }
+
+    @BeforeEach
+    void clear() {
+        execute(DATABASE_NAME, "TRUNCATE TABLE loaded_rows");
+    }
+
+    @Test
+    void loadsAllRowsInChunks() {
+        List<LoadProgress> progress = new ArrayList<>();
+        BatchResult result = repository.load(LongStream.rangeClosed(1, ROWS).mapToObj(LoadedRow::create).iterator(), 64 * 1024, progress::add);
+
+        assertEquals(ROWS, result.rows());
+        assertEquals(ROWS, result.affectedRows());
+        assertTrue(result.chunks().size() > 1, "Expected several chunks, got " + result.chunks().size());
+        assertEquals(result.chunks().size(), progress.size());
+        assertEquals(ROWS, progress.getLast().rows());
+        for (int i = 1; i < progress.size(); i++) {
+            assertTrue(progress.get(i).rows() > progress.get(i - 1).rows());
+        }
+
+        LongObjectMap<LoadedRow> rows = repository.findAllByIds(LongStream.rangeClosed(1, ROWS).toArray());
+        assertEquals(ROWS, rows.size());
+        rows.forEach((id, row) -> assertLoaded(LoadedRow.create(id), row));
+    }
+
+    @Test
+    void keepsSpecialCharactersAndBytes() {
+        List<LoadedRow> rows = IntStream.range(0, 4).mapToObj(i -> LoadedRow.create(i + 1)).toList();
+        rows.get(0).name = "tab\tnewline\nreturn\r";
+        rows.get(1).name = "back\\slash \\N and \"quotes\"";
+        rows.get(2).name = "ünïcödé ✓ 😀";
+        rows.get(3).name = null;
+        rows.get(3).payload = new byte[] {0, 9, 10, 13, 92, -1};
+        repository.load(rows.iterator());
+
+        for (LoadedRow row : rows) {
+            assertLoaded(row, repository.findById(row.id));
+        }
+    }
+
+    @Test
+    void appliesDefaultsToUnsetColumns() {
+        LoadedRow row = LoadedRow.create(1);
+        row.status = null;
+        repository.load(List.of(row).iterator());
+
+        LoadedRow loaded = repository.findById(1L);
+        assertNotNull(loaded);
+        assertEquals("new", loaded.status);
+    }
+
+    private static void assertLoaded(LoadedRow expected, LoadedRow actual) {
+        assertNotNull(actual, "Row " + expected.id + " was not loaded");
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.score, actual.score);
+        assertEquals(expected.balance, actual.balance);
+        assertEquals(expected.status, actual.status);
+        assertArrayEquals(expected.payload, actual.payload);
+    }
+
+    private static void execute(String database, String sql) {
+        try (Connection connection = DriverManager.getConnection("jdbc:mysql://" + credentials.getHost() + ":" + credentials.getPort() + "/" + database,
+                credentials.getUser(), credentials.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to execute query: " + sql, e);
+        }
+    }
+
+    @SopraTable(dataSourceId = DATA_SOURCE_ID, name = "loaded_rows", snakeCase = true)
+    public static class LoadedRow {
+
+        @Id
+        public long id;
+        public String name;
+        public int score;
+        public double balance;
+        @Default("'new'")
+        public String status;
+        public byte[] payload;
+
+        static LoadedRow create(long id) {
+            LoadedRow row = new LoadedRow();
+            row.id = id;
+            row.name = "row " + id;
+            row.score = (int) (id % 1_000);
+            row.balance = id * 0.25;
+            row.status = (id % 2 == 0) ? "active" : "closed";
+            row.payload = new byte[] {(byte) id, (byte) (id >>> 8)};
+            return row;
+        }
+
+    }
+
+}
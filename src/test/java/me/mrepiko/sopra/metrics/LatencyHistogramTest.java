@@ -0,0 +1,68 @@
+package me.mrepiko.sopra.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsContainTheirValues() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            check(random.nextLong() >>> (1 + random.nextInt(63)));
+        }
+        for (long value = 0; value < 4_096; value++) {
+            check(value);
+        }
+        check(Long.MAX_VALUE);
+    }
+
+    @Test
+    void boundsAreWithinAQuarterOfTheValue() {
+        for (long value = 4; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 / 2 + 1) {
+            long upperBound = LatencyHistogram.upperBound(LatencyHistogram.bucket(value));
+            assertTrue(upperBound - value <= value / 4, "Bound " + upperBound + " of " + value);
+        }
+    }
+
+    @Test
+    void reportsPercentilesOfRecordedLatencies() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1_000; nanos++) {
+            histogram.record(nanos * 1_000, nanos % 100 == 0);
+        }
+        histogram.record(-5, false);
+
+        LatencyStats stats = histogram.snapshot();
+        assertEquals(1_001, stats.count());
+        assertEquals(10, stats.errors());
+        assertEquals(1_000_000, stats.maxNanos());
+        assertWithin(500_000, stats.p50Nanos());
+        assertWithin(950_000, stats.p95Nanos());
+        assertWithin(990_000, stats.p99Nanos());
+    }
+
+    @Test
+    void reportsNothingWhenEmpty() {
+        LatencyStats stats = new LatencyHistogram().snapshot();
+        assertEquals(0, stats.count());
+        assertEquals(0, stats.p99Nanos());
+    }
+
+    private static void check(long value) {
+        int bucket = LatencyHistogram.bucket(value);
+        assertTrue(LatencyHistogram.upperBound(bucket) >= value, "Bucket " + bucket + " is below " + value);
+        if (bucket > 0) {
+            assertTrue(LatencyHistogram.upperBound(bucket - 1) < value, "Bucket " + bucket + " is above " + value);
+        }
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected * 5 / 4, "Expected about " + expected + ", got " + actual);
+    }
+
+}
@@ -0,0 +1,117 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.annotations.Id;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnMapperTest {
+
+    private static final EntityMetadata<Sample> METADATA = new EntityMetadataRegistry(null).get(Sample.class);
+
+    @Test
+    void bindsPrimitivesWithTypedSetters() throws SQLException {
+        Sample sample = Sample.create();
+        List<String> calls = new ArrayList<>();
+        PreparedStatement statement = proxy(PreparedStatement.class, (name, args) -> {
+            calls.add(name + "(" + args[0] + ", " + args[1] + ")");
+            return null;
+        });
+        int index = 1;
+        for (ColumnMetadata column : METADATA.getColumns()) {
+            ColumnMapper.of(column).bind(statement, index++, sample);
+        }
+        assertEquals(List.of("setLong(1, 7)", "setInt(2, -3)", "setDouble(3, 2.5)", "setBoolean(4, true)", "setFloat(5, 1.5)",
+                "setShort(6, 12)", "setByte(7, 4)", "setString(8, text)"), calls);
+    }
+
+    @Test
+    void readsPrimitivesWithTypedGetters() throws SQLException {
+        Map<String, Object> values = Map.of("getLong", 7L, "getInt", -3, "getDouble", 2.5, "getBoolean", true, "getFloat", 1.5f,
+                "getShort", (short) 12, "getByte", (byte) 4, "getString", "text");
+        ResultSet resultSet = proxy(ResultSet.class, (name, args) -> name.equals("wasNull") ? false : values.get(name));
+        Sample sample = new Sample();
+        int index = 1;
+        for (ColumnMetadata column : METADATA.getColumns()) {
+            ColumnMapper.of(column).read(resultSet, index++, sample);
+        }
+        assertEquals(Sample.create(), sample);
+    }
+
+    @Test
+    void passesDriverFailuresThrough() {
+        SQLException failure = new SQLException("closed");
+        PreparedStatement statement = proxy(PreparedStatement.class, (name, args) -> {
+            throw failure;
+        });
+        ColumnMapper mapper = ColumnMapper.of(METADATA.requireIdColumn());
+        assertSame(failure, assertThrows(SQLException.class, () -> mapper.bind(statement, 1, Sample.create())));
+    }
+
+    @Test
+    void copiesEveryColumn() {
+        assertEquals(Sample.create(), METADATA.copy(Sample.create()));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String name, Object[] args) throws Throwable;
+    }
+
+    private static <P> P proxy(Class<P> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> handler.handle(method.getName(), args)));
+    }
+
+    @SopraTable(dataSourceId = "test", name = "samples")
+    static class Sample {
+        @Id
+        public long id;
+        public int count;
+        public double ratio;
+        public boolean active;
+        public float weight;
+        public short rank;
+        public byte level;
+        public String name;
+
+        static Sample create() {
+            Sample sample = new Sample();
+            sample.id = 7;
+            sample.count = -3;
+            sample.ratio = 2.5;
+            sample.active = true;
+            sample.weight = 1.5f;
+            sample.rank = 12;
+            sample.level = 4;
+            sample.name = "text";
+            return sample;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Sample sample && id == sample.id && count == sample.count && ratio == sample.ratio && active == sample.active
+                    && weight == sample.weight && rank == sample.rank && level == sample.level && name.equals(sample.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(id);
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package me.mrepiko.sopra.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InListSizeTest {
+
+    private static final int SQL_LIMIT = 2048;
+
+    @Test
+    void roundsSmallLookupsUpToPowersOfTwo() {
+        assertEquals(1, SopraRepository.getInListSize(1, 512));
+        assertEquals(2, SopraRepository.getInListSize(2, 512));
+        assertEquals(4, SopraRepository.getInListSize(3, 512));
+        assertEquals(128, SopraRepository.getInListSize(100, 512));
+        assertEquals(512, SopraRepository.getInListSize(512, 512));
+        assertEquals(256, SopraRepository.getInListSize(10_000, 256));
+    }
+
+    @Test
+    void keepsStatementsCacheable() {
+        for (int prefixLength = 0; prefixLength < SQL_LIMIT - 2; prefixLength++) {
+            int size = SopraRepository.getMaxInListSize(prefixLength, SQL_LIMIT);
+            assertEquals(Integer.highestOneBit(size), size);
+            // The prefix followed by "?,?,...,?)".
+            assertTrue(prefixLength + 2 * size < SQL_LIMIT, "Size " + size + " does not fit a prefix of " + prefixLength);
+            if (size < 512) {
+                assertTrue(prefixLength + 4 * size >= SQL_LIMIT, "Size " + size + " is not the largest for a prefix of " + prefixLength);
+            }
+        }
+    }
+
+    @Test
+    void usesTheLargestListWhenNothingFits() {
+        assertEquals(512, SopraRepository.getMaxInListSize(100, SQL_LIMIT));
+        assertEquals(512, SopraRepository.getMaxInListSize(SQL_LIMIT, SQL_LIMIT));
+        assertEquals(512, SopraRepository.getMaxInListSize(5_000, SQL_LIMIT));
+    }
+
+}
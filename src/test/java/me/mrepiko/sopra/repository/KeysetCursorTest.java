@@ -0,0 +1,110 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.annotations.Id;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.metadata.ColumnMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetCursorTest {
+
+    private static final EntityMetadata<Event> METADATA = new EntityMetadataRegistry(null).get(Event.class);
+
+    @Test
+    void decodesWhatItEncodes() {
+        KeysetCursor cursor = cursor("events", "kind", "createdAt", "token", "payload", "id");
+        Event event = new Event();
+        event.id = 42;
+        event.kind = Kind.CLOSED;
+        event.createdAt = Instant.parse("2024-05-01T12:30:15.123456Z");
+        event.token = new UUID(1, 2);
+        event.payload = new byte[] {0, -1, 2};
+
+        Object[] values = cursor.decode(cursor.encode(event));
+        assertEquals(Kind.CLOSED, values[0]);
+        assertEquals(event.createdAt, values[1]);
+        assertEquals(event.token, values[2]);
+        assertArrayEquals(event.payload, (byte[]) values[3]);
+        assertEquals(42L, values[4]);
+    }
+
+    @Test
+    void decodesNullKeysAsNull() {
+        KeysetCursor cursor = cursor("events", "label", "token", "id");
+        Event event = new Event();
+        event.id = 42;
+
+        Object[] values = cursor.decode(cursor.encode(event));
+        assertNull(values[0]);
+        assertNull(values[1]);
+        assertEquals(42L, values[2]);
+
+        event.label = "null";
+        assertEquals("null", cursor.decode(cursor.encode(event))[0]);
+    }
+
+    @Test
+    void producesUrlSafeCursors() {
+        Event event = new Event();
+        event.id = Long.MAX_VALUE;
+        String encoded = cursor("events", "id").encode(event);
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherKey() {
+        Event event = new Event();
+        event.id = 7;
+        event.kind = Kind.OPEN;
+        String encoded = cursor("events", "kind", "id").encode(event);
+        assertThrows(IllegalArgumentException.class, () -> cursor("archived_events", "kind", "id").decode(encoded));
+        assertThrows(IllegalArgumentException.class, () -> cursor("events", "id").decode(encoded));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        KeysetCursor cursor = cursor("events", "id");
+        assertThrows(IllegalArgumentException.class, () -> cursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> cursor.decode(""));
+    }
+
+    @Test
+    void supportsComparableTypesOnly() {
+        assertTrue(KeysetCursor.isSupported(long.class));
+        assertTrue(KeysetCursor.isSupported(Kind.class));
+        assertFalse(KeysetCursor.isSupported(Object.class));
+    }
+
+    private static KeysetCursor cursor(String tableName, String... fields) {
+        ColumnMetadata[] columns = new ColumnMetadata[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns[i] = METADATA.getColumnByField(fields[i]);
+        }
+        return new KeysetCursor(tableName, columns);
+    }
+
+    enum Kind { OPEN, CLOSED }
+
+    @SopraTable(dataSourceId = "test", name = "events")
+    static class Event {
+        @Id
+        public long id;
+        public Kind kind;
+        public Instant createdAt;
+        public UUID token;
+        public byte[] payload;
+        public String label;
+    }
+
+}
@@ -0,0 +1,64 @@
+package me.mrepiko.sopra.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectMapTest {
+
+    @Test
+    void storesTheZeroKey() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertFalse(map.containsKey(0));
+        assertNull(map.put(0, "zero"));
+        assertEquals("zero", map.put(0, "still zero"));
+        assertEquals("still zero", map.get(0));
+        assertEquals(1, map.size());
+        assertArrayEquals(new long[] {0}, map.keys());
+    }
+
+    @Test
+    void keepsEntriesWhenGrowing() {
+        LongObjectMap<Long> map = new LongObjectMap<>(1);
+        for (long key = -1_000; key <= 1_000; key++) {
+            map.put(key, key * 2);
+        }
+        assertEquals(2_001, map.size());
+        for (long key = -1_000; key <= 1_000; key++) {
+            assertEquals(key * 2, map.get(key));
+        }
+        assertNull(map.get(1_001));
+    }
+
+    @Test
+    void matchesHashMap() {
+        Random random = new Random(42);
+        LongObjectMap<Integer> map = new LongObjectMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            // Keys sharing their low bits would all collide without the hash spreading them.
+            long key = (random.nextInt(2_000) - 1_000L) << 32;
+            assertEquals(expected.put(key, i), map.put(key, i));
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+        long[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).sorted().toArray(), keys);
+
+        LongObjectMap<Integer> copy = new LongObjectMap<>();
+        copy.putAll(map);
+        map.forEach((key, value) -> assertEquals(value, copy.get(key)));
+        assertTrue(copy.values().containsAll(expected.values()));
+    }
+
+}
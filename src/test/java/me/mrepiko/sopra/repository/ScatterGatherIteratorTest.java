@@ -0,0 +1,49 @@
+package me.mrepiko.sopra.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Timeout(10)
+class ScatterGatherIteratorTest {
+
+    @Test
+    void reportsErrorsOfAReader() {
+        AssertionError error = new AssertionError("reader failed");
+        try (ScatterGatherIterator<Object> iterator = new ScatterGatherIterator<>(List.of(failing(error)))) {
+            assertSame(error, assertThrows(AssertionError.class, iterator::hasNext));
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    void reportsExceptionsOfAReader() {
+        IllegalStateException exception = new IllegalStateException("reader failed");
+        try (ScatterGatherIterator<Object> iterator = new ScatterGatherIterator<>(List.of(failing(exception), failing(exception)))) {
+            assertSame(exception, assertThrows(RuntimeException.class, iterator::hasNext).getCause());
+        }
+    }
+
+    @Test
+    void endsWithoutReaders() {
+        try (ScatterGatherIterator<Object> iterator = new ScatterGatherIterator<>(List.of())) {
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    private static Supplier<ResultSetIterator<Object>> failing(Throwable throwable) {
+        return () -> {
+            if (throwable instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) throwable;
+        };
+    }
+
+}
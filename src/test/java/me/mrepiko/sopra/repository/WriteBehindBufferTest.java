@@ -0,0 +1,105 @@
+package me.mrepiko.sopra.repository;
+
+import me.mrepiko.sopra.annotations.Id;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.annotations.WriteBehind;
+import me.mrepiko.sopra.metadata.EntityMetadata;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import me.mrepiko.sopra.metrics.SopraMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindBufferTest {
+
+    private static final EntityMetadata<Counter> METADATA = new EntityMetadataRegistry(null).get(Counter.class);
+
+    @Test
+    void mergesColumnsOfUpdatesBufferedAgain() {
+        List<List<WriteBehindBuffer.Pending<Counter>>> writes = new ArrayList<>();
+        WriteBehindBuffer<Counter> buffer = new WriteBehindBuffer<>(METADATA, Counter.class.getAnnotation(WriteBehind.class),
+                new SopraMetrics(false, null, Map.of()), writes::add);
+        try {
+            buffer.add(Counter.create(1, 1), columns(0));
+            buffer.add(Counter.create(1, 2), columns(1));
+            buffer.flush();
+            assertEquals(columns(0, 1), writes.getFirst().getFirst().columns());
+            assertEquals(2, writes.getFirst().getFirst().entity().value);
+
+            buffer.add(Counter.create(1, 3), null);
+            buffer.add(Counter.create(1, 4), columns(1));
+            buffer.flush();
+            assertNull(writes.getLast().getFirst().columns());
+        } finally {
+            buffer.close();
+        }
+    }
+
+    @Test
+    void keepsColumnsOfFailedFlushes() {
+        List<WriteBehindBuffer.Pending<Counter>> written = new ArrayList<>();
+        AtomicReference<WriteBehindBuffer<Counter>> holder = new AtomicReference<>();
+        boolean[] failed = new boolean[1];
+        WriteBehindBuffer<Counter> buffer = new WriteBehindBuffer<>(METADATA, Counter.class.getAnnotation(WriteBehind.class),
+                new SopraMetrics(false, null, Map.of()), entries -> {
+                    if (!failed[0]) {
+                        failed[0] = true;
+                        // A newer update of the same row arrives while the flush runs, then the flush fails.
+                        holder.get().add(Counter.create(1, 2), columns(1));
+                        throw new IllegalStateException("write failed");
+                    }
+                    written.addAll(entries);
+                });
+        holder.set(buffer);
+        try {
+            buffer.add(Counter.create(1, 1), columns(0));
+            long since = System.nanoTime();
+            assertThrows(IllegalStateException.class, buffer::flush);
+            buffer.flush();
+
+            assertEquals(1, written.size());
+            WriteBehindBuffer.Pending<Counter> entry = written.getFirst();
+            assertEquals(2, entry.entity().value);
+            assertEquals(columns(0, 1), entry.columns());
+            assertTrue(entry.since() < since, "The row must keep the time of its oldest update");
+        } finally {
+            buffer.close();
+        }
+    }
+
+    private static BitSet columns(int... indexes) {
+        BitSet columns = new BitSet();
+        for (int index : indexes) {
+            columns.set(index);
+        }
+        return columns;
+    }
+
+    @WriteBehind(maxPending = 1_000, flushIntervalMillis = 3_600_000)
+    @SopraTable(dataSourceId = "test", name = "counters")
+    static class Counter {
+
+        @Id
+        public long id;
+        public long value;
+        public String label;
+
+        static Counter create(long id, long value) {
+            Counter counter = new Counter();
+            counter.id = id;
+            counter.value = value;
+            return counter;
+        }
+
+    }
+
+}
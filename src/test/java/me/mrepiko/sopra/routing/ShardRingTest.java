@@ -0,0 +1,65 @@
+package me.mrepiko.sopra.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void spreadsKeysEvenly() {
+        List<String> shards = List.of("shard-0", "shard-1", "shard-2", "shard-3");
+        ShardRing ring = new ShardRing("users", shards);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long key = 1; key <= KEYS; key++) {
+            counts.merge(ring.getShard(key), 1, Integer::sum);
+        }
+        assertEquals(shards.size(), counts.size());
+        int expected = KEYS / shards.size();
+        for (int count : counts.values()) {
+            assertTrue(Math.abs(count - expected) < expected * 0.2, "Uneven distribution " + counts);
+        }
+    }
+
+    @Test
+    void movesOnlyKeysOfTheAddedShard() {
+        ShardRing before = new ShardRing("users", List.of("shard-0", "shard-1", "shard-2"));
+        ShardRing after = new ShardRing("users", List.of("shard-0", "shard-1", "shard-2", "shard-3"));
+        int moved = 0;
+        for (long key = 1; key <= KEYS; key++) {
+            String shard = after.getShard(key);
+            if (!shard.equals(before.getShard(key))) {
+                assertEquals("shard-3", shard);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.35, "Moved " + moved + " keys");
+    }
+
+    @Test
+    void mapsEqualKeysToTheSameShard() {
+        ShardRing ring = new ShardRing("users", List.of("shard-0", "shard-1", "shard-2"));
+        ShardRing copy = new ShardRing("users", List.of("shard-0", "shard-1", "shard-2"));
+        for (int key = 1; key <= 1_000; key++) {
+            assertEquals(ring.getShard(key), ring.getShard((long) key));
+            assertEquals(ring.getShard((long) key), copy.getShard((long) key));
+            UUID uuid = new UUID(key, -key);
+            assertEquals(ring.getShard(uuid), copy.getShard(new UUID(key, -key)));
+        }
+    }
+
+    @Test
+    void rejectsEmptyGroups() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRing("users", List.of()));
+    }
+
+}
@@ -0,0 +1,91 @@
+package me.mrepiko.sopra.schema;
+
+import me.mrepiko.sopra.annotations.Column;
+import me.mrepiko.sopra.annotations.Id;
+import me.mrepiko.sopra.annotations.SopraTable;
+import me.mrepiko.sopra.annotations.Unique;
+import me.mrepiko.sopra.metadata.EntityMetadataRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigrationPlannerTest {
+
+    private static final LiveColumn ID_COLUMN = new LiveColumn("id", "bigint", false, null, "", 1);
+    private static final LiveIndex PRIMARY_KEY = new LiveIndex("PRIMARY", true, List.of("id"), List.of(0));
+
+    @Test
+    void keepsTheCaseOfStringLiterals() {
+        assertEquals("Active", MigrationPlanner.normalizeDefault("'Active'", "VARCHAR(16)"));
+        assertNotEquals(MigrationPlanner.normalizeDefault("'Active'", "VARCHAR(16)"),
+                MigrationPlanner.normalizeDefault("'active'", "varchar(16)"));
+    }
+
+    @Test
+    void matchesUnquotedLiteralsReportedByMySql() {
+        assertEquals(MigrationPlanner.normalizeDefault("'Active'", "VARCHAR(16)"), MigrationPlanner.normalizeDefault("Active", "varchar(16)"));
+        assertEquals(MigrationPlanner.normalizeDefault("'it''s'", "TEXT"), MigrationPlanner.normalizeDefault("it's", "text"));
+    }
+
+    @Test
+    void matchesCharsetIntroducersReportedByMySql() {
+        assertEquals("[]", MigrationPlanner.normalizeDefault("_utf8mb4\\'[]\\'", "json"));
+        assertEquals(MigrationPlanner.normalizeDefault("'Mixed'", "LONGTEXT"), MigrationPlanner.normalizeDefault("(_utf8mb4\\'Mixed\\')", "longtext"));
+    }
+
+    @Test
+    void lowercasesExpressions() {
+        assertEquals("current_timestamp", MigrationPlanner.normalizeDefault("CURRENT_TIMESTAMP", "TIMESTAMP"));
+        assertEquals("current_timestamp", MigrationPlanner.normalizeDefault("current_timestamp()", "timestamp"));
+        assertEquals(MigrationPlanner.normalizeDefault("UUID()", "CHAR(36)"), MigrationPlanner.normalizeDefault("uuid()", "char(36)"));
+    }
+
+    @Test
+    void normalizesBooleansAndNumbers() {
+        assertEquals("1", MigrationPlanner.normalizeDefault("TRUE", "BOOLEAN"));
+        assertEquals("0", MigrationPlanner.normalizeDefault("false", "tinyint(1)"));
+        assertEquals("0", MigrationPlanner.normalizeDefault("'0'", "INT"));
+        assertEquals("true", MigrationPlanner.normalizeDefault("'true'", "VARCHAR(8)"));
+    }
+
+    @Test
+    void treatsNullAsNoDefault() {
+        assertNull(MigrationPlanner.normalizeDefault(null, "INT"));
+        assertNull(MigrationPlanner.normalizeDefault("NULL", "VARCHAR(16)"));
+    }
+
+    @Test
+    void addsUniqueConstraintsOfNewFields() {
+        MigrationPlan plan = MigrationPlanner.plan(memberTable(), Map.of("id", ID_COLUMN), Map.of("primary", PRIMARY_KEY));
+        assertEquals(List.of("ADD COLUMN email VARCHAR(64) NOT NULL", "ADD UNIQUE INDEX uq_email (email)"),
+                plan.getSteps().stream().map(MigrationStep::clause).toList());
+    }
+
+    @Test
+    void recognizesUniqueConstraintsNamedByTheServer() {
+        LiveColumn email = new LiveColumn("email", "varchar(64)", false, null, "", 2);
+        LiveIndex unique = new LiveIndex("email", true, List.of("email"), List.of(0));
+        MigrationPlan plan = MigrationPlanner.plan(memberTable(), Map.of("id", ID_COLUMN, "email", email), Map.of("primary", PRIMARY_KEY, "email", unique));
+        assertTrue(plan.isEmpty(), plan.describe());
+    }
+
+    private static TableSchema memberTable() {
+        return new TableSchema(new EntityMetadataRegistry(null).get(Member.class));
+    }
+
+    @SopraTable(dataSourceId = "test", name = "members")
+    static class Member {
+        @Id
+        public long id;
+        @Unique
+        @Column(length = 64)
+        public String email;
+    }
+
+}
@@ -0,0 +1,49 @@
+package me.mrepiko.sopra.schema;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlTypesTest {
+
+    @Test
+    void keepsTheCaseOfEnumMembers() {
+        assertEquals("enum('A','b')", SqlTypes.normalize("ENUM('A', 'b')"));
+        assertNotEquals(SqlTypes.normalize("ENUM('A')"), SqlTypes.normalize("enum('a')"));
+        assertEquals("set('Read Only','x')", SqlTypes.normalize("SET ('Read Only' , 'x')"));
+    }
+
+    @Test
+    void dropsWhitespaceMySqlLeavesOut() {
+        assertEquals("decimal(10,2)", SqlTypes.normalize("DECIMAL(10, 2)"));
+        assertEquals("varchar(10)", SqlTypes.normalize("varchar (10)"));
+        assertEquals("bigint unsigned", SqlTypes.normalize("  BIGINT   UNSIGNED "));
+    }
+
+    @Test
+    void dropsIntegerDisplayWidths() {
+        assertEquals("int unsigned", SqlTypes.normalize("INT(11) UNSIGNED"));
+        assertEquals("int", SqlTypes.normalize("INTEGER"));
+        assertEquals("bigint", SqlTypes.normalize("bigint(20)"));
+    }
+
+    @Test
+    void treatsBooleanAsTinyint() {
+        assertEquals("tinyint(1)", SqlTypes.normalize("BOOLEAN"));
+        assertEquals("tinyint(1)", SqlTypes.normalize("bool"));
+        assertEquals("tinyint(1)", SqlTypes.normalize("TINYINT(1)"));
+    }
+
+    @Test
+    void recognizesCharacterTypes() {
+        assertTrue(SqlTypes.isCharacterType("VARCHAR(64)"));
+        assertTrue(SqlTypes.isCharacterType("LONGTEXT"));
+        assertTrue(SqlTypes.isCharacterType("ENUM('A')"));
+        assertFalse(SqlTypes.isCharacterType("BIGINT"));
+        assertFalse(SqlTypes.isCharacterType("JSON"));
+    }
+
+}